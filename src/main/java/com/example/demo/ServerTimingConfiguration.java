@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.example.demo.controllers.ServerTimingFilter;
+import com.example.demo.services.JdbcTimingListener;
+import com.example.demo.services.RequestTimings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Feeds the {@link RequestTimings} phases reported by {@link ServerTimingFilter}:
+ * JDBC statements through a Hibernate session listener, repository calls through a
+ * Spring Data invocation listener and JSON through the Jackson message converter.
+ * Off unless {@code server-timing.enabled=true}: buffering responses to set the header
+ * costs memory and time-to-first-byte, so it is meant for diagnosing, not for every deployment.
+ */
+@Configuration
+@ConditionalOnProperty(name = "server-timing.enabled", havingValue = "true", matchIfMissing = false)
+public class ServerTimingConfiguration {
+
+    @Bean
+    public ServerTimingFilter serverTimingFilter(@Value("${server-timing.slow-request-ms:1000}") long slowRequestMillis) {
+        return new ServerTimingFilter(slowRequestMillis);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcTimingCustomizer() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                JdbcTimingListener.class.getName());
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addInvocationListener(invocation -> RequestTimings.add(RequestTimings.REPOSITORY,
+                                    invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Replaces Spring Boot's Jackson converter, with the same {@link ObjectMapper}.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+
+            @Override
+            public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return super.read(type, contextClass, inputMessage);
+                } finally {
+                    RequestTimings.add(RequestTimings.JSON, System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    RequestTimings.add(RequestTimings.JSON, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+}
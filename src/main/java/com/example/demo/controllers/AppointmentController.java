@@ -1,13 +1,31 @@
 package com.example.demo.controllers;
 
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.BookingResult;
+import com.example.demo.dto.PurgeReport;
+import com.example.demo.dto.RoomAssignment;
 import com.example.demo.entities.Appointment;
-import com.example.demo.entities.Room;
 import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.AppointmentExporter;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentPurger;
+import com.example.demo.services.BookingOutcome;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.ScheduleSolver;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,16 +36,48 @@ import static org.springframework.http.ResponseEntity.status;
 @RequestMapping("/api")
 public class AppointmentController {
 
+    static final String NDJSON = "application/x-ndjson";
+
     final
     AppointmentRepository appointmentRepository;
 
-    public AppointmentController(AppointmentRepository appointmentRepository) {
+    final
+    AppointmentIndex appointmentIndex;
+
+    final
+    AppointmentExporter appointmentExporter;
+
+    final
+    BookingService bookingService;
+
+    final
+    AppointmentPurger appointmentPurger;
+
+    final
+    ScheduleSolver scheduleSolver;
+
+    public AppointmentController(AppointmentRepository appointmentRepository, AppointmentIndex appointmentIndex,
+                                 AppointmentExporter appointmentExporter, BookingService bookingService,
+                                 AppointmentPurger appointmentPurger, ScheduleSolver scheduleSolver) {
         this.appointmentRepository = appointmentRepository;
+        this.appointmentIndex = appointmentIndex;
+        this.appointmentExporter = appointmentExporter;
+        this.bookingService = bookingService;
+        this.appointmentPurger = appointmentPurger;
+        this.scheduleSolver = scheduleSolver;
     }
 
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
-        List<Appointment> appointments = appointmentRepository.findAll();
+    public ResponseEntity<List<?>> getAllAppointments(@RequestParam(value = "limit", required = false) Integer limit,
+                                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                                      @RequestParam(value = "view", defaultValue = Views.DEFAULT) String view) {
+        if (limit != null) {
+            return getAppointmentsPage(limit, cursor, Views.isSummary(view));
+        }
+
+        List<?> appointments = Views.isSummary(view)
+                ? appointmentRepository.findAllSummaries()
+                : appointmentRepository.findAll();
 
         if (appointments.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -36,6 +86,51 @@ public class AppointmentController {
         return new ResponseEntity<>(appointments, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<?>> getAppointmentsPage(int limit, String cursor, boolean summary) {
+        if (!KeysetPages.isValidLimit(limit)) {
+            return status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (cursor == null) {
+            if (summary) {
+                Slice<AppointmentSummary> page = appointmentRepository.findFirstSummaries(KeysetPages.firstPage(limit));
+                return KeysetPages.respond(page, s -> cursorOf(s.getStartsAt(), s.getId()));
+            }
+            return KeysetPages.respond(
+                    appointmentRepository.findByStartsAtNotNullOrderByStartsAtAscIdAsc(KeysetPages.firstPage(limit)),
+                    a -> cursorOf(a.getStartsAt(), a.getId()));
+        }
+
+        String[] keys = KeysetPages.decode(cursor, 2);
+        if (keys == null) {
+            return status(HttpStatus.BAD_REQUEST).build();
+        }
+        LocalDateTime startsAt;
+        long id;
+        try {
+            startsAt = LocalDateTime.parse(keys[0]);
+            id = Long.parseLong(keys[1]);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        if (summary) {
+            Slice<AppointmentSummary> page = appointmentRepository.findSummariesAfter(startsAt, id, KeysetPages.firstPage(limit));
+            return KeysetPages.respond(page, s -> cursorOf(s.getStartsAt(), s.getId()));
+        }
+        Slice<Appointment> page = appointmentRepository.findPageAfter(startsAt, id, KeysetPages.firstPage(limit));
+        return KeysetPages.respond(page, a -> cursorOf(a.getStartsAt(), a.getId()));
+    }
+
+    private static String cursorOf(LocalDateTime startsAt, long id) {
+        return KeysetPages.encode(startsAt, id);
+    }
+
+    @GetMapping(value = "/appointments/export", produces = NDJSON)
+    public void exportAppointments(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        appointmentExporter.export(response.getOutputStream());
+    }
+
     @GetMapping("/appointments/{id}")
     public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id) {
         Optional<Appointment> appointment = appointmentRepository.findById(id);
@@ -45,39 +140,77 @@ public class AppointmentController {
     }
 
     @PostMapping("/appointment")
-    public ResponseEntity<List<Appointment>> createAppointment(@RequestBody Appointment appointment) {
-        boolean isValidTime = validateAppointmentDate(appointment.getStartsAt(), appointment.getFinishesAt());
-        if (!isValidTime) {
-            return status(HttpStatus.BAD_REQUEST).build();
+    public ResponseEntity<?> createAppointment(@RequestBody Appointment appointment,
+                                               @RequestParam(value = "view", defaultValue = "all") String view) {
+        BookingOutcome outcome = bookingService.book(appointment);
+        if (outcome != BookingOutcome.ACCEPTED) {
+            return status(statusOf(outcome)).build();
         }
 
-        boolean isAvalibleRoom = validateRoomAvailability(appointment.getStartsAt(), appointment.getRoom());
-        if (!isAvalibleRoom) {
-            return status(HttpStatus.NOT_ACCEPTABLE).build();
+        // "created" answers with the new appointment only; the default keeps the legacy full listing
+        if ("created".equalsIgnoreCase(view)) {
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/appointments/{id}")
+                    .buildAndExpand(appointment.getId())
+                    .toUri();
+            return ResponseEntity.created(location).body(appointment);
         }
-
-        appointmentRepository.save(appointment);
         return status(HttpStatus.OK).body(appointmentRepository.findAll());
     }
 
-    private boolean validateRoomAvailability(LocalDateTime startsAt, Room room) {
-        Optional<Appointment> optionalAppointment = appointmentRepository.findAll().stream()
-                .filter(a -> a.getStartsAt().equals(startsAt))
-                .findFirst();
-
-        boolean availableTime = false;
-        boolean roomAvailable = false;
-        if (optionalAppointment.isPresent()) {
-            availableTime = true;
-            roomAvailable = !optionalAppointment.get()
-                    .getRoom().getRoomName().equals(room.getRoomName());
+    @PostMapping("/appointments")
+    public ResponseEntity<AppointmentSummary> createAppointmentByReference(@RequestBody AppointmentRequest request) {
+        BookingResult result = bookingService.bookByReference(request);
+        if (result.getOutcome() != BookingOutcome.ACCEPTED) {
+            return status(statusOf(result.getOutcome())).build();
         }
 
-        return availableTime == roomAvailable;
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/appointments/{id}")
+                .buildAndExpand(result.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(new AppointmentSummary(result.getId(),
+                request.getPatientId(), request.getDoctorId(), result.getRoomName(),
+                request.getStartsAt(), request.getFinishesAt()));
     }
 
-    private boolean validateAppointmentDate(LocalDateTime startsAt, LocalDateTime finishesAt) {
-        return startsAt.plusHours(1).isEqual(finishesAt);
+    @PostMapping("/appointments/batch")
+    public ResponseEntity<List<BookingResult>> createAppointments(@RequestBody List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return status(HttpStatus.BAD_REQUEST).build();
+        }
+        return status(HttpStatus.OK).body(bookingService.bookAll(appointments));
+    }
+
+    /**
+     * Proposes a room for each request; with {@code commit=true} the proposal is also booked.
+     */
+    @PostMapping("/appointments/schedule")
+    public ResponseEntity<List<RoomAssignment>> scheduleAppointments(@RequestBody List<AppointmentRequest> requests,
+                                                                     @RequestParam(value = "commit", defaultValue = "false") boolean commit) {
+        if (requests.isEmpty()) {
+            return status(HttpStatus.BAD_REQUEST).build();
+        }
+        List<RoomAssignment> assignments = commit
+                ? scheduleSolver.commit(requests)
+                : scheduleSolver.propose(requests);
+        return status(HttpStatus.OK).body(assignments);
+    }
+
+    private static HttpStatus statusOf(BookingOutcome outcome) {
+        switch (outcome) {
+            case ACCEPTED:
+                return HttpStatus.OK;
+            case ROOM_TAKEN:
+            case NO_ROOM_AVAILABLE:
+            case DOCTOR_BUSY:
+            case PATIENT_BUSY:
+                return HttpStatus.NOT_ACCEPTABLE;
+            case UNKNOWN_REFERENCE:
+                return HttpStatus.NOT_FOUND;
+            default:
+                return HttpStatus.BAD_REQUEST;
+        }
     }
 
     @DeleteMapping("/appointments/{id}")
@@ -90,6 +223,7 @@ public class AppointmentController {
         }
 
         appointmentRepository.deleteById(id);
+        appointmentIndex.remove(id);
 
         return new ResponseEntity<>(HttpStatus.OK);
 
@@ -97,8 +231,15 @@ public class AppointmentController {
 
     @DeleteMapping("/appointments")
     public ResponseEntity<HttpStatus> deleteAllAppointments() {
-        appointmentRepository.deleteAll();
+        appointmentRepository.deleteAllInBatch();
+        appointmentIndex.clear();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @DeleteMapping(value = "/appointments", params = "before")
+    public ResponseEntity<PurgeReport> purgeAppointments(
+            @RequestParam("before") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before) {
+        return status(HttpStatus.OK).body(appointmentPurger.purgeFinishedBefore(before.atStartOfDay()));
+    }
+
 }
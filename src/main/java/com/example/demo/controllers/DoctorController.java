@@ -1,13 +1,20 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Doctor;
+import com.example.demo.services.PersonImporter;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -16,6 +23,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -26,11 +34,23 @@ public class DoctorController {
     @Autowired
     DoctorRepository doctorRepository;
 
+    @Autowired
+    PersonImporter personImporter;
+
     @GetMapping("/doctors")
-    public ResponseEntity<List<Doctor>> getAllDoctors(){
-        List<Doctor> doctors = new ArrayList<>();
+    public ResponseEntity<List<?>> getAllDoctors(@RequestParam(value = "limit", required = false) Integer limit,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "view", defaultValue = Views.DEFAULT) String view){
+        if (limit != null){
+            return getDoctorsPage(limit, cursor, Views.isSummary(view));
+        }
 
-        doctorRepository.findAll().forEach(doctors::add);
+        List<?> doctors;
+        if (Views.isSummary(view)){
+            doctors = doctorRepository.findAllSummaries();
+        } else {
+            doctors = doctorRepository.findAll();
+        }
 
         if (doctors.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -39,6 +59,27 @@ public class DoctorController {
         return new ResponseEntity<>(doctors, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<?>> getDoctorsPage(int limit, String cursor, boolean summary){
+        long after = 0;
+        if (cursor != null){
+            Long key = KeysetPages.decodeId(cursor);
+            if (key == null){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            after = key;
+        }
+        if (!KeysetPages.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (summary){
+            Slice<PersonSummary> page = doctorRepository.findSummariesAfter(after, KeysetPages.firstPage(limit));
+            return KeysetPages.respond(page, d -> KeysetPages.encode(d.getId()));
+        }
+        Slice<Doctor> page = doctorRepository.findByIdGreaterThanOrderByIdAsc(after, KeysetPages.firstPage(limit));
+        return KeysetPages.respond(page, d -> KeysetPages.encode(d.getId()));
+    }
+
     @GetMapping("/doctors/{id}")
     public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id){
         Optional<Doctor> doctor = doctorRepository.findById(id);
@@ -56,6 +97,20 @@ public class DoctorController {
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/doctors/import", consumes = "text/csv")
+    public ResponseEntity<ImportReport> importDoctorsFromCsv(InputStream body) throws IOException {
+        return new ResponseEntity<>(personImporter.importCsv(body, Doctor::new), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/doctors/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportReport> importDoctorsFromJson(InputStream body) throws IOException {
+        try {
+            return new ResponseEntity<>(personImporter.importJson(body, Doctor::new), HttpStatus.OK);
+        } catch (JsonProcessingException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @DeleteMapping("/doctors/{id}")
     public ResponseEntity<HttpStatus> deleteDoctor(@PathVariable("id") long id){
         Optional<Doctor> doctor = doctorRepository.findById(id);
@@ -70,7 +125,7 @@ public class DoctorController {
 
     @DeleteMapping("/doctors")
     public ResponseEntity<HttpStatus> deleteAllDoctors(){
-        doctorRepository.deleteAll();
+        doctorRepository.deleteAllInBatch();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -0,0 +1,89 @@
+package com.example.demo.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Helpers shared by the list endpoints when they are called with {@code limit}.
+ * Pages are read with keyset queries ("everything after the last key I saw"),
+ * so reading a page deep into the table costs the same as reading the first one.
+ * The key of the last row travels back to the client as an opaque cursor.
+ */
+final class KeysetPages {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final int MAX_LIMIT = 1000;
+
+    private static final String SEPARATOR = "|";
+
+    private KeysetPages() {
+    }
+
+    static boolean isValidLimit(int limit) {
+        return limit > 0;
+    }
+
+    static Pageable firstPage(int limit) {
+        return PageRequest.of(0, Math.min(limit, MAX_LIMIT));
+    }
+
+    static String encode(Object... keys) {
+        StringBuilder joined = new StringBuilder();
+        for (Object key : keys) {
+            if (joined.length() > 0) {
+                joined.append(SEPARATOR);
+            }
+            joined.append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joined.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits a cursor back into its keys, or returns {@code null} when it was not produced by {@link #encode}.
+     */
+    static String[] decode(String cursor, int keys) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = joined.split("\\" + SEPARATOR, keys);
+            return parts.length == keys ? parts : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static Long decodeId(String cursor) {
+        String[] keys = decode(cursor, 1);
+        if (keys == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(keys[0]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static <T> ResponseEntity<List<?>> respond(Slice<T> page, Function<T, String> cursorOf) {
+        List<T> content = page.getContent();
+        if (content.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, cursorOf.apply(content.get(content.size() - 1)));
+        }
+        return response.body(content);
+    }
+
+}
@@ -2,13 +2,20 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Patient;
+import com.example.demo.services.PersonImporter;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -17,6 +24,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -27,11 +35,23 @@ public class PatientController {
     @Autowired
     PatientRepository patientRepository;
 
+    @Autowired
+    PersonImporter personImporter;
+
     @GetMapping("/patients")
-    public ResponseEntity<List<Patient>> getAllPatients(){
-        List<Patient> patients = new ArrayList<>();
+    public ResponseEntity<List<?>> getAllPatients(@RequestParam(value = "limit", required = false) Integer limit,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "view", defaultValue = Views.DEFAULT) String view){
+        if (limit != null){
+            return getPatientsPage(limit, cursor, Views.isSummary(view));
+        }
 
-        patientRepository.findAll().forEach(patients::add);
+        List<?> patients;
+        if (Views.isSummary(view)){
+            patients = patientRepository.findAllSummaries();
+        } else {
+            patients = patientRepository.findAll();
+        }
 
         if (patients.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -40,6 +60,27 @@ public class PatientController {
         return new ResponseEntity<>(patients, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<?>> getPatientsPage(int limit, String cursor, boolean summary){
+        long after = 0;
+        if (cursor != null){
+            Long key = KeysetPages.decodeId(cursor);
+            if (key == null){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            after = key;
+        }
+        if (!KeysetPages.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (summary){
+            Slice<PersonSummary> page = patientRepository.findSummariesAfter(after, KeysetPages.firstPage(limit));
+            return KeysetPages.respond(page, p -> KeysetPages.encode(p.getId()));
+        }
+        Slice<Patient> page = patientRepository.findByIdGreaterThanOrderByIdAsc(after, KeysetPages.firstPage(limit));
+        return KeysetPages.respond(page, p -> KeysetPages.encode(p.getId()));
+    }
+
     @GetMapping("/patients/{id}")
     public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id){
         Optional<Patient> patient = patientRepository.findById(id);
@@ -56,6 +97,20 @@ public class PatientController {
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/patients/import", consumes = "text/csv")
+    public ResponseEntity<ImportReport> importPatientsFromCsv(InputStream body) throws IOException {
+        return new ResponseEntity<>(personImporter.importCsv(body, Patient::new), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/patients/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportReport> importPatientsFromJson(InputStream body) throws IOException {
+        try {
+            return new ResponseEntity<>(personImporter.importJson(body, Patient::new), HttpStatus.OK);
+        } catch (JsonProcessingException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @DeleteMapping("/patients/{id}")
     public ResponseEntity<HttpStatus> deletePatient(@PathVariable("id") long id){
         Optional<Patient> patient = patientRepository.findById(id);
@@ -68,7 +123,7 @@ public class PatientController {
 
     @DeleteMapping("/patients")
     public ResponseEntity<HttpStatus> deleteAllPatients(){
-        patientRepository.deleteAll();
+        patientRepository.deleteAllInBatch();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
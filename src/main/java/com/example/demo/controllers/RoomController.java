@@ -2,12 +2,18 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.dto.RoomSummary;
 import com.example.demo.entities.Room;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +23,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -24,14 +31,29 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api")
 public class RoomController {
 
+    /** Longest range, in days, a free-slot search may cover. */
+    static final int MAX_FREE_SLOT_DAYS = 31;
+
     @Autowired
     RoomRepository roomRepository;
 
+    @Autowired
+    AppointmentIndex appointmentIndex;
+
     @GetMapping("/rooms")
-    public ResponseEntity<List<Room>> getAllRooms(){
-        List<Room> rooms = new ArrayList<>();
+    public ResponseEntity<List<?>> getAllRooms(@RequestParam(value = "limit", required = false) Integer limit,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "view", defaultValue = Views.DEFAULT) String view){
+        if (limit != null){
+            return getRoomsPage(limit, cursor, Views.isSummary(view));
+        }
 
-        roomRepository.findAll().forEach(rooms::add);
+        List<?> rooms;
+        if (Views.isSummary(view)){
+            rooms = roomRepository.findAllSummaries();
+        } else {
+            rooms = roomRepository.findAll();
+        }
 
         if (rooms.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -40,6 +62,27 @@ public class RoomController {
         return new ResponseEntity<>(rooms, HttpStatus.OK);
     }
 
+    private ResponseEntity<List<?>> getRoomsPage(int limit, String cursor, boolean summary){
+        String after = "";
+        if (cursor != null){
+            String[] keys = KeysetPages.decode(cursor, 1);
+            if (keys == null){
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            after = keys[0];
+        }
+        if (!KeysetPages.isValidLimit(limit)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (summary){
+            Slice<RoomSummary> page = roomRepository.findSummariesAfter(after, KeysetPages.firstPage(limit));
+            return KeysetPages.respond(page, r -> KeysetPages.encode(r.getRoomName()));
+        }
+        Slice<Room> page = roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc(after, KeysetPages.firstPage(limit));
+        return KeysetPages.respond(page, r -> KeysetPages.encode(r.getRoomName()));
+    }
+
     @GetMapping("/rooms/{roomName}")
     public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName){
         Optional<Room> room = roomRepository.findByRoomName(roomName);
@@ -49,10 +92,44 @@ public class RoomController {
         return new ResponseEntity<>(room.get(), HttpStatus.OK);
     }
 
+    @GetMapping("/rooms/{roomName}/free-slots")
+    public ResponseEntity<List<FreeSlot>> getFreeSlots(@PathVariable("roomName") String roomName,
+                                                       @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                       @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        if (!isValidRange(from, to)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (!appointmentIndex.hasRoom(roomName)){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return freeSlotsResponse(appointmentIndex.freeSlots(roomName, from, to));
+    }
+
+    @GetMapping("/rooms/free-slots")
+    public ResponseEntity<List<FreeSlot>> getFreeSlotsOfAllRooms(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                 @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        if (!isValidRange(from, to)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return freeSlotsResponse(appointmentIndex.freeSlots(from, to));
+    }
+
+    private static boolean isValidRange(LocalDate from, LocalDate to){
+        return !to.isBefore(from) && ChronoUnit.DAYS.between(from, to) < MAX_FREE_SLOT_DAYS;
+    }
+
+    private static ResponseEntity<List<FreeSlot>> freeSlotsResponse(List<FreeSlot> slots){
+        if (slots.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(slots, HttpStatus.OK);
+    }
+
     @PostMapping("/room")
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
         Room tmp = new Room(room.getRoomName());
         roomRepository.save(tmp);
+        appointmentIndex.addRoom(tmp.getRoomName());
         return new ResponseEntity<>(tmp, HttpStatus.CREATED);
     }
 
@@ -63,12 +140,14 @@ public class RoomController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         roomRepository.deleteByRoomName(roomName);
+        appointmentIndex.removeRoom(roomName);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/rooms")
     public ResponseEntity<HttpStatus> deleteAllRooms(){
-        roomRepository.deleteAll();
+        roomRepository.deleteAllInBatch();
+        appointmentIndex.removeAllRooms();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -0,0 +1,160 @@
+package com.example.demo.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.example.demo.services.RequestTimings;
+
+/**
+ * Answers every request with a {@code Server-Timing} header that breaks its latency
+ * down into the {@link RequestTimings} phases, for example
+ * {@code db;dur=3.1;desc="4 statements", repo;dur=5.0, json;dur=2.2, total;dur=8.4}.
+ * The body is buffered until the handler returns so that the header can still be set,
+ * except for streamed bodies: NDJSON or server-sent events, and handlers returning a
+ * {@link StreamingResponseBody}. Those are written straight through and only get the
+ * header if nothing has been flushed yet. Requests slower than
+ * {@code server-timing.slow-request-ms} are logged together with their breakdown.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private static final List<MediaType> STREAMED_TYPES = Arrays.asList(MediaType.APPLICATION_NDJSON,
+            MediaType.TEXT_EVENT_STREAM);
+
+    final
+    long slowRequestNanos;
+
+    public ServerTimingFilter(long slowRequestMillis) {
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = new TimedResponse(request, response);
+        RequestTimings timings = RequestTimings.start();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, buffered);
+        } finally {
+            long total = System.nanoTime() - start;
+            RequestTimings.end();
+            String breakdown = serverTiming(timings, total);
+            if (!response.isCommitted()) {
+                response.setHeader(HEADER, breakdown);
+            }
+            if (total >= slowRequestNanos) {
+                log.warn("Slow request {} {} answered {} in {} ms: {}", request.getMethod(), request.getRequestURI(),
+                        buffered.getStatus(), TimeUnit.NANOSECONDS.toMillis(total), breakdown);
+            }
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Whether the body is written as it is produced and must not be held back.
+     * Decided when the handler first asks for the body stream, once its content type is set.
+     */
+    static boolean isStreamed(HttpServletRequest request, HttpServletResponse response) {
+        String contentType = response.getContentType();
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (STREAMED_TYPES.stream().anyMatch(mediaType::equalsTypeAndSubtype)) {
+                return true;
+            }
+        }
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod)) {
+            return false;
+        }
+        ResolvableType body = ResolvableType.forMethodParameter(((HandlerMethod) handler).getReturnType());
+        if (ResponseEntity.class.equals(body.resolve())) {
+            body = body.getGeneric();
+        }
+        return StreamingResponseBody.class.isAssignableFrom(body.toClass());
+    }
+
+    static String serverTiming(RequestTimings timings, long totalNanos) {
+        StringBuilder header = new StringBuilder();
+        for (String phase : timings.getPhases()) {
+            header.append(phase).append(";dur=").append(millis(timings.getNanos(phase)));
+            if (RequestTimings.DB.equals(phase)) {
+                header.append(";desc=\"").append(timings.getCount(phase)).append(" statements\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(millis(totalNanos)).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Buffers the body like its parent unless {@link #isStreamed} says otherwise when the
+     * body is first requested, in which case it hands out the underlying stream or writer.
+     */
+    private static class TimedResponse extends ContentCachingResponseWrapper {
+
+        final
+        HttpServletRequest request;
+
+        private Boolean streamed;
+
+        TimedResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return streamed() ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return streamed() ? getResponse().getWriter() : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (Boolean.TRUE.equals(streamed)) {
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean streamed() {
+            if (streamed == null) {
+                streamed = isStreamed(request, (HttpServletResponse) getResponse());
+            }
+            return streamed;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.example.demo.controllers;
+
+/**
+ * Values of the {@code view} parameter accepted by the list endpoints.
+ * The default view returns entities; {@link #SUMMARY} returns flat rows
+ * read through repository projections, without managed entities.
+ */
+final class Views {
+
+    static final String DEFAULT = "all";
+
+    static final String SUMMARY = "summary";
+
+    private Views() {
+    }
+
+    static boolean isSummary(String view) {
+        return SUMMARY.equalsIgnoreCase(view);
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.entities.EpochMinutes;
+
+/**
+ * Immutable, detached view of the time an appointment occupies in a room and
+ * in its doctor's and patient's schedules. Used to keep schedule indexes in
+ * memory without holding managed entities. Doctor and patient ids are
+ * {@code null} when unknown. The times are also kept as {@link EpochMinutes}
+ * for the schedule indexes to compare.
+ */
+public final class AppointmentSlot {
+
+    private final long id;
+    private final String roomName;
+    private final LocalDateTime startsAt;
+    private final LocalDateTime finishesAt;
+    private final Long doctorId;
+    private final Long patientId;
+    private final long startsAtMinute;
+    private final long finishesAtMinute;
+
+    public AppointmentSlot(long id, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this(id, roomName, startsAt, finishesAt, null, null);
+    }
+
+    public AppointmentSlot(long id, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt,
+                           Long doctorId, Long patientId){
+        this.id = id;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.startsAtMinute = startsAt == null ? Long.MIN_VALUE : EpochMinutes.of(startsAt);
+        this.finishesAtMinute = finishesAt == null ? Long.MIN_VALUE : EpochMinutes.of(finishesAt);
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public long getStartsAtMinute(){
+        return this.startsAtMinute;
+    }
+
+    public long getFinishesAtMinute(){
+        return this.finishesAtMinute;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Read-only row of the appointment list. Patient, doctor and room are
+ * reduced to their ids, which are read from the appointment's own foreign
+ * key columns without joining the participants.
+ */
+public final class AppointmentSummary {
+
+    private final long id;
+    private final Long patientId;
+    private final Long doctorId;
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentSummary(long id, Long patientId, Long doctorId, String roomName,
+                              LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+
+}
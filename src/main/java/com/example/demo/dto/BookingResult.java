@@ -0,0 +1,45 @@
+package com.example.demo.dto;
+
+import com.example.demo.services.BookingOutcome;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a batch booking, identified by its position in the request.
+ * An accepted booking by reference also carries the room it was given.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class BookingResult {
+
+    private final int index;
+    private final BookingOutcome outcome;
+    private final Long id;
+    private final String roomName;
+
+    public BookingResult(int index, BookingOutcome outcome, Long id){
+        this(index, outcome, id, null);
+    }
+
+    public BookingResult(int index, BookingOutcome outcome, Long id, String roomName){
+        this.index = index;
+        this.outcome = outcome;
+        this.id = id;
+        this.roomName = roomName;
+    }
+
+    public int getIndex(){
+        return this.index;
+    }
+
+    public BookingOutcome getOutcome(){
+        return this.outcome;
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+}
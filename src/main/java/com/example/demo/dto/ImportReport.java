@@ -0,0 +1,75 @@
+package com.example.demo.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a bulk import: how many rows were stored, how fast, and which rows were rejected.
+ * Only the first {@link #MAX_ERRORS} rejected rows are listed; {@code failed} counts all of them.
+ */
+public final class ImportReport {
+
+    public static final int MAX_ERRORS = 100;
+
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void imported(){
+        this.imported++;
+    }
+
+    public void failed(long row, String message){
+        this.failed++;
+        if (this.errors.size() < MAX_ERRORS) {
+            this.errors.add(new RowError(row, message));
+        }
+    }
+
+    public void finished(long elapsedMillis){
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getImported(){
+        return this.imported;
+    }
+
+    public long getFailed(){
+        return this.failed;
+    }
+
+    public long getElapsedMillis(){
+        return this.elapsedMillis;
+    }
+
+    public long getRowsPerSecond(){
+        return this.elapsedMillis == 0 ? this.imported : this.imported * 1000 / this.elapsedMillis;
+    }
+
+    public List<RowError> getErrors(){
+        return Collections.unmodifiableList(this.errors);
+    }
+
+    public static final class RowError {
+
+        private final long row;
+        private final String message;
+
+        RowError(long row, String message){
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow(){
+            return this.row;
+        }
+
+        public String getMessage(){
+            return this.message;
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.example.demo.dto;
+
+/**
+ * Read-only row of a doctor or patient list, selected column by column
+ * so listing does not load managed entities into the persistence context.
+ */
+public final class PersonSummary {
+
+    private final long id;
+    private final String firstName;
+    private final String lastName;
+    private final int age;
+    private final String email;
+
+    public PersonSummary(long id, String firstName, String lastName, int age, String email){
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.email = email;
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getFirstName(){
+        return this.firstName;
+    }
+
+    public String getLastName(){
+        return this.lastName;
+    }
+
+    public int getAge(){
+        return this.age;
+    }
+
+    public String getEmail(){
+        return this.email;
+    }
+
+}
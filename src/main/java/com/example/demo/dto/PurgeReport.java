@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+/**
+ * Summary of a chunked purge: how many rows were deleted, in how many
+ * separately committed chunks, and how long it took.
+ */
+public final class PurgeReport {
+
+    private long deleted;
+    private int chunks;
+    private long elapsedMillis;
+
+    public void chunk(int deleted){
+        this.deleted += deleted;
+        this.chunks++;
+    }
+
+    public void finished(long elapsedMillis){
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getDeleted(){
+        return this.deleted;
+    }
+
+    public int getChunks(){
+        return this.chunks;
+    }
+
+    public long getElapsedMillis(){
+        return this.elapsedMillis;
+    }
+
+}
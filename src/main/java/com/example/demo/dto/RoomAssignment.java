@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+import com.example.demo.services.BookingOutcome;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Room proposed by the scheduling solver for one request, identified by its
+ * position in the batch. The id is only set once the proposal has been committed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class RoomAssignment {
+
+    private final int index;
+    private final BookingOutcome outcome;
+    private final String roomName;
+    private final Long id;
+
+    public RoomAssignment(int index, BookingOutcome outcome, String roomName, Long id){
+        this.index = index;
+        this.outcome = outcome;
+        this.roomName = roomName;
+        this.id = id;
+    }
+
+    public int getIndex(){
+        return this.index;
+    }
+
+    public BookingOutcome getOutcome(){
+        return this.outcome;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public Long getId(){
+        return this.id;
+    }
+
+}
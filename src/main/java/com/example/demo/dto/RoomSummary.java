@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+/**
+ * Read-only row of the room list.
+ */
+public final class RoomSummary {
+
+    private final String roomName;
+
+    public RoomSummary(String roomName){
+        this.roomName = roomName;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+}
@@ -6,13 +6,43 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@NamedEntityGraph(name = Appointment.WITH_PARTICIPANTS, attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("room")
+})
+@Table(uniqueConstraints = @UniqueConstraint(name = Appointment.UNIQUE_ROOM_START, columnNames = {"room_id", "startsAt"}),
+        indexes = {
+        @Index(name = "idx_appointment_room_starts", columnList = "room_id, startsAt, finishesAt"),
+        @Index(name = "idx_appointment_starts_id", columnList = "startsAt, id"),
+        @Index(name = "idx_appointment_finishes_id", columnList = "finishesAt, id"),
+        @Index(name = "idx_appointment_doctor_starts", columnList = "doctor_id, startsAt, finishesAt"),
+        @Index(name = "idx_appointment_patient_starts", columnList = "patient_id, startsAt, finishesAt")
+})
 public class Appointment {
 
+    /**
+     * Fetch plan that loads patient, doctor and room in the same select as the appointment,
+     * instead of one extra select per distinct association.
+     */
+    public static final String WITH_PARTICIPANTS = "Appointment.withParticipants";
+
+    /**
+     * No two appointments may start at the same time in the same room. Bookings are
+     * checked before they reach the database; this constraint is the final guard.
+     */
+    public static final String UNIQUE_ROOM_START = "uk_appointment_room_starts";
+
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="appointment_seq")
+    @GenericGenerator(name="appointment_seq", strategy="com.example.demo.entities.PooledSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="appointment_seq"))
     private long id;
 
 
@@ -88,27 +118,55 @@ public class Appointment {
     public void setRoom(Room room){
         this.room = room;
     }
-    
+
+    /*
+     * {@link EpochMinutes} of both times. They are derived on every call rather than
+     * cached, so they cannot go stale when Hibernate writes the fields directly.
+     */
+
+    @JsonIgnore
+    public long getStartsAtMinute(){
+        return EpochMinutes.of(this.startsAt);
+    }
+
+    @JsonIgnore
+    public long getFinishesAtMinute(){
+        return EpochMinutes.of(this.finishesAt);
+    }
+
+    /**
+     * Same room and overlapping time; the times are compared as {@link EpochMinutes}.
+     */
     public boolean overlaps( Appointment appointment){
+        return appointment.getRoom().getRoomName().equals(this.getRoom().getRoomName())
+                && overlaps(this.getStartsAtMinute(), this.getFinishesAtMinute(),
+                            appointment.getStartsAtMinute(), appointment.getFinishesAtMinute());
+    }
+
+    public static boolean overlaps(LocalDateTime startsAt, LocalDateTime finishesAt,
+                                   LocalDateTime otherStartsAt, LocalDateTime otherFinishesAt){
         /// True when:
         // Case 1: A.starts == B.starts
         // Case 2: A.finishes == B.finishes 
         // Case 3: A.starts < B.finishes && B.finishes < A.finishes
-        // Case 4: B.starts < A.starts && A.finishes < B.finishes
-        if (appointment.getRoom().getRoomName().equals(this.getRoom().getRoomName())){ 
-            if (this.getStartsAt().equals(appointment.getStartsAt()) || 
-                    appointment.getFinishesAt().equals(this.getFinishesAt())){
-                return true;
-                    }
-            if (appointment.getFinishesAt().isAfter(this.getStartsAt()) && appointment.getFinishesAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
-            if ( appointment.getStartsAt().isAfter(this.getStartsAt()) && appointment.getStartsAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
+        // Case 4: A.starts < B.starts && B.starts < A.finishes
+        if (startsAt.equals(otherStartsAt) || otherFinishesAt.equals(finishesAt)){
+            return true;
         }
-        
-        return false;
+        if (otherFinishesAt.isAfter(startsAt) && otherFinishesAt.isBefore(finishesAt)){
+            return true;
+        }
+        return otherStartsAt.isAfter(startsAt) && otherStartsAt.isBefore(finishesAt);
+    }
+
+    /**
+     * {@link #overlaps(LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime)} on
+     * {@link EpochMinutes}: the same four cases, as plain comparisons.
+     */
+    public static boolean overlaps(long startsAt, long finishesAt, long otherStartsAt, long otherFinishesAt){
+        return startsAt == otherStartsAt || finishesAt == otherFinishesAt
+                || (otherFinishesAt > startsAt && otherFinishesAt < finishesAt)
+                || (otherStartsAt > startsAt && otherStartsAt < finishesAt);
     }
 
 }
@@ -0,0 +1,34 @@
+package com.example.demo.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * One row per room ({@code room:<name>}) plus a fixed number of stripe rows
+ * ({@code stripe:<n>}) that doctors and patients hash onto. The row carries no data:
+ * it exists so that nodes sharing the database can serialize bookings with
+ * {@code SELECT ... FOR UPDATE}.
+ */
+@Entity
+@Table(name = "booking_locks")
+public class BookingLock {
+
+    @Id
+    @Column(name = "lock_key", length = 191)
+    private String lockKey;
+
+    public BookingLock(){
+        super();
+    }
+
+    public BookingLock(String lockKey){
+        this.lockKey = lockKey;
+    }
+
+    public String getLockKey(){
+        return this.lockKey;
+    }
+
+}
@@ -1,13 +1,21 @@
 package com.example.demo.entities;
 
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="doctors")
 @Table(name="doctors")
 public class Doctor extends Person {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="doctor_seq")
+    @GenericGenerator(name="doctor_seq", strategy="com.example.demo.entities.PooledSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="doctor_seq"))
     private long id;
  
     public Doctor() {
@@ -0,0 +1,24 @@
+package com.example.demo.entities;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Appointment times as whole minutes since 1970-01-01T00:00 (local time, no zone),
+ * so schedules can be compared as plain {@code long}s. Seconds are dropped; the API
+ * only accepts times to the minute.
+ */
+public final class EpochMinutes {
+
+    private EpochMinutes() {
+    }
+
+    public static long of(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+}
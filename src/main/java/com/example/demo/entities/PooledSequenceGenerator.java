@@ -0,0 +1,36 @@
+package com.example.demo.entities;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Per-entity sequence generator that hands out identifiers from an in-memory
+ * pool ("pooled-lo"), so only one in {@code allocation_size} inserts touches the
+ * sequence. On databases without sequences (MySQL) the sequence is emulated by a
+ * one-row table named after it.
+ * The pool size is read from {@value #ALLOCATION_SIZE} and defaults to {@value #DEFAULT_ALLOCATION_SIZE}.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE = "hibernate.id.allocation_size";
+
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings().get(ALLOCATION_SIZE);
+
+        params.putIfAbsent(INCREMENT_PARAM,
+                allocationSize == null ? String.valueOf(DEFAULT_ALLOCATION_SIZE) : allocationSize.toString());
+        params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+}
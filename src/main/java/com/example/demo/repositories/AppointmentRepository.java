@@ -1,14 +1,84 @@
 
 package com.example.demo.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.AppointmentSummary;
 import com.example.demo.entities.Appointment;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    String STREAM_FETCH_SIZE = "500";
+
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
     List<Appointment> findAll();
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
+    Optional<Appointment> findById(Long id);
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
+    Slice<Appointment> findByStartsAtNotNullOrderByStartsAtAscIdAsc(Pageable pageable);
+
+    @EntityGraph(Appointment.WITH_PARTICIPANTS)
+    @Query("select a from Appointment a where a.startsAt > :startsAt " +
+            "or (a.startsAt = :startsAt and a.id > :id) order by a.startsAt, a.id")
+    Slice<Appointment> findPageAfter(@Param("startsAt") LocalDateTime startsAt, @Param("id") long id,
+                                     Pageable pageable);
+
+    @Query("select new com.example.demo.dto.AppointmentSummary(a.id, a.patient.id, a.doctor.id, " +
+            "a.room.roomName, a.startsAt, a.finishesAt) from Appointment a order by a.id")
+    List<AppointmentSummary> findAllSummaries();
+
+    @Query("select new com.example.demo.dto.AppointmentSummary(a.id, a.patient.id, a.doctor.id, " +
+            "a.room.roomName, a.startsAt, a.finishesAt) from Appointment a where a.startsAt is not null order by a.startsAt, a.id")
+    Slice<AppointmentSummary> findFirstSummaries(Pageable pageable);
+
+    @Query("select new com.example.demo.dto.AppointmentSummary(a.id, a.patient.id, a.doctor.id, " +
+            "a.room.roomName, a.startsAt, a.finishesAt) from Appointment a where a.startsAt > :startsAt " +
+            "or (a.startsAt = :startsAt and a.id > :id) order by a.startsAt, a.id")
+    Slice<AppointmentSummary> findSummariesAfter(@Param("startsAt") LocalDateTime startsAt, @Param("id") long id,
+                                                 Pageable pageable);
+
+    @Query("select new com.example.demo.dto.AppointmentSlot(a.id, a.room.roomName, a.startsAt, a.finishesAt, " +
+            "a.doctor.id, a.patient.id) " +
+            "from Appointment a where a.startsAt is not null and a.finishesAt is not null")
+    List<AppointmentSlot> findAllSlots();
+
+    @Query("select new com.example.demo.dto.AppointmentSlot(a.id, a.room.roomName, a.startsAt, a.finishesAt) " +
+            "from Appointment a where a.room.roomName = :roomName " +
+            "and a.startsAt > :earliestStart and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    List<AppointmentSlot> findOverlappingSlots(@Param("roomName") String roomName,
+                                               @Param("earliestStart") LocalDateTime earliestStart,
+                                               @Param("startsAt") LocalDateTime startsAt,
+                                               @Param("finishesAt") LocalDateTime finishesAt);
+
+    boolean existsByDoctorIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+            long doctorId, LocalDateTime earliestStart, LocalDateTime finishesAt, LocalDateTime startsAt);
+
+    boolean existsByPatientIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+            long patientId, LocalDateTime earliestStart, LocalDateTime finishesAt, LocalDateTime startsAt);
+
+    @Query("select a.id from Appointment a where a.finishesAt < :before order by a.finishesAt, a.id")
+    List<Long> findIdsFinishedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("select a from Appointment a left join fetch a.patient left join fetch a.doctor " +
+            "left join fetch a.room order by a.id")
+    Stream<Appointment> streamAll();
 }
@@ -2,12 +2,26 @@ package com.example.demo.repositories;
 
 import java.util.List;
 
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Doctor;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findAll();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+    Slice<Doctor> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    @Query("select new com.example.demo.dto.PersonSummary(d.id, d.firstName, d.lastName, d.age, d.email) " +
+            "from Doctor d order by d.id")
+    List<PersonSummary> findAllSummaries();
+
+    @Query("select new com.example.demo.dto.PersonSummary(d.id, d.firstName, d.lastName, d.age, d.email) " +
+            "from Doctor d where d.id > :id order by d.id")
+    Slice<PersonSummary> findSummariesAfter(@Param("id") long id, Pageable pageable);
 }
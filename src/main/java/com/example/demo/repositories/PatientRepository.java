@@ -3,12 +3,26 @@ package com.example.demo.repositories;
 
 import java.util.List;
 
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Patient;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     List<Patient> findAll();
     Patient save(Patient doc);
     void delete(Patient doc);
+    Slice<Patient> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    @Query("select new com.example.demo.dto.PersonSummary(p.id, p.firstName, p.lastName, p.age, p.email) " +
+            "from Patient p order by p.id")
+    List<PersonSummary> findAllSummaries();
+
+    @Query("select new com.example.demo.dto.PersonSummary(p.id, p.firstName, p.lastName, p.age, p.email) " +
+            "from Patient p where p.id > :id order by p.id")
+    Slice<PersonSummary> findSummariesAfter(@Param("id") long id, Pageable pageable);
 }
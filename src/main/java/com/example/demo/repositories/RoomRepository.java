@@ -4,14 +4,35 @@ package com.example.demo.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import com.example.demo.dto.RoomSummary;
 import com.example.demo.entities.Room;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
     List<Room> findAll();
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = "rooms-by-name")})
     Optional<Room> findByRoomName(String roomName);
     Room save(Room room);
     void delete(Room room);
+    @Transactional
     void deleteByRoomName(String roomName);
+    Slice<Room> findByRoomNameGreaterThanOrderByRoomNameAsc(String roomName, Pageable pageable);
+
+    @Query("select new com.example.demo.dto.RoomSummary(r.roomName) from Room r order by r.roomName")
+    List<RoomSummary> findAllSummaries();
+
+    @Query("select new com.example.demo.dto.RoomSummary(r.roomName) from Room r " +
+            "where r.roomName > :roomName order by r.roomName")
+    Slice<RoomSummary> findSummariesAfter(@Param("roomName") String roomName, Pageable pageable);
 }
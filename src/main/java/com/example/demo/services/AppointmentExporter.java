@@ -0,0 +1,73 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes the whole appointment history as newline-delimited JSON.
+ * Rows are read through a JDBC cursor and the persistence context is cleared
+ * after every fetch, so memory use does not depend on the size of the table.
+ */
+@Service
+public class AppointmentExporter {
+
+    private static final int CLEAR_EVERY = Integer.parseInt(AppointmentRepository.STREAM_FETCH_SIZE);
+
+    final
+    AppointmentRepository appointmentRepository;
+
+    final
+    ObjectMapper objectMapper;
+
+    final
+    EntityManager entityManager;
+
+    public AppointmentExporter(AppointmentRepository appointmentRepository, ObjectMapper objectMapper,
+                               EntityManager entityManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Appointment.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long rows = 0;
+
+        try (Stream<Appointment> appointments = appointmentRepository.streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<Appointment> iterator = appointments.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                rows++;
+
+                if (rows % CLEAR_EVERY == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.flush();
+        }
+        return rows;
+    }
+
+}
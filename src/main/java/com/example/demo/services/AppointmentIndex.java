@@ -0,0 +1,235 @@
+package com.example.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.dto.RoomSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.EpochMinutes;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+
+/**
+ * In-memory index of booked appointments, with one sorted timeline per room,
+ * per doctor and per patient, and a minute-level {@link OccupancyCalendar} per
+ * room for free-slot searches. It also knows the names of all rooms.
+ * It is loaded once at startup and must be kept current by every code path
+ * that creates or deletes appointments or rooms.
+ */
+@Component
+public class AppointmentIndex {
+
+    private static final OccupancyCalendar EMPTY = new OccupancyCalendar();
+
+    final
+    AppointmentRepository appointmentRepository;
+
+    final
+    RoomRepository roomRepository;
+
+    private final Set<String> roomNames = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, OccupancyCalendar> calendars = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ScheduleTimeline> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ScheduleTimeline> doctors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ScheduleTimeline> patients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, AppointmentSlot> slots = new ConcurrentHashMap<>();
+
+    public AppointmentIndex(AppointmentRepository appointmentRepository, RoomRepository roomRepository) {
+        this.appointmentRepository = appointmentRepository;
+        this.roomRepository = roomRepository;
+    }
+
+    @PostConstruct
+    public void reload() {
+        clear();
+        roomNames.clear();
+        for (RoomSummary room : roomRepository.findAllSummaries()) {
+            roomNames.add(room.getRoomName());
+        }
+        appointmentRepository.findAllSlots().forEach(this::add);
+    }
+
+    public void addRoom(String roomName) {
+        roomNames.add(roomName);
+    }
+
+    public void removeRoom(String roomName) {
+        roomNames.remove(roomName);
+    }
+
+    public void removeAllRooms() {
+        roomNames.clear();
+    }
+
+    public boolean hasRoom(String roomName) {
+        return roomNames.contains(roomName);
+    }
+
+    public Set<String> getRoomNames() {
+        return Collections.unmodifiableSet(new HashSet<>(roomNames));
+    }
+
+    /**
+     * Known rooms with no booked minute inside {@code [startsAt, finishesAt)}, in no particular order.
+     * Each room costs one bitmap probe; the caller still has to confirm its pick under the room's lock.
+     */
+    public List<String> freeRooms(LocalDateTime startsAt, LocalDateTime finishesAt) {
+        List<String> free = new ArrayList<>();
+        for (String roomName : roomNames) {
+            if (calendars.getOrDefault(roomName, EMPTY).isFree(startsAt, finishesAt)) {
+                free.add(roomName);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Free whole hours of one room between two days, both inclusive, in time order.
+     */
+    public List<FreeSlot> freeSlots(String roomName, LocalDate from, LocalDate to) {
+        List<FreeSlot> free = new ArrayList<>();
+        addFreeSlots(roomName, from, to, free);
+        return free;
+    }
+
+    /**
+     * Free whole hours of every known room between two days, both inclusive,
+     * ordered by start time and then by room name.
+     */
+    public List<FreeSlot> freeSlots(LocalDate from, LocalDate to) {
+        List<FreeSlot> free = new ArrayList<>();
+        for (String roomName : roomNames) {
+            addFreeSlots(roomName, from, to, free);
+        }
+        free.sort(Comparator.comparing(FreeSlot::getStartsAt).thenComparing(FreeSlot::getRoomName));
+        return free;
+    }
+
+    private void addFreeSlots(String roomName, LocalDate from, LocalDate to, Collection<FreeSlot> free) {
+        List<LocalDateTime> hours = new ArrayList<>();
+        calendars.getOrDefault(roomName, EMPTY).addFreeHours(from, to, hours);
+        for (LocalDateTime hour : hours) {
+            free.add(new FreeSlot(roomName, hour, hour.plusHours(1)));
+        }
+    }
+
+    public boolean isRoomAvailable(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return isRoomAvailable(roomName, EpochMinutes.of(startsAt), EpochMinutes.of(finishesAt));
+    }
+
+    public boolean isDoctorAvailable(long doctorId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return isDoctorAvailable(doctorId, EpochMinutes.of(startsAt), EpochMinutes.of(finishesAt));
+    }
+
+    public boolean isPatientAvailable(long patientId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return isPatientAvailable(patientId, EpochMinutes.of(startsAt), EpochMinutes.of(finishesAt));
+    }
+
+    /*
+     * The same checks on {@link EpochMinutes}, for callers that convert once and probe many schedules.
+     */
+
+    public boolean isRoomAvailable(String roomName, long startsAtMinute, long finishesAtMinute) {
+        return isFree(rooms.get(roomName), startsAtMinute, finishesAtMinute);
+    }
+
+    public boolean isDoctorAvailable(long doctorId, long startsAtMinute, long finishesAtMinute) {
+        return isFree(doctors.get(doctorId), startsAtMinute, finishesAtMinute);
+    }
+
+    public boolean isPatientAvailable(long patientId, long startsAtMinute, long finishesAtMinute) {
+        return isFree(patients.get(patientId), startsAtMinute, finishesAtMinute);
+    }
+
+    public void add(Appointment appointment) {
+        add(new AppointmentSlot(appointment.getId(),
+                appointment.getRoom() == null ? null : appointment.getRoom().getRoomName(),
+                appointment.getStartsAt(), appointment.getFinishesAt(),
+                appointment.getDoctor() == null ? null : appointment.getDoctor().getId(),
+                appointment.getPatient() == null ? null : appointment.getPatient().getId()));
+    }
+
+    public void add(AppointmentSlot slot) {
+        if (slot.getStartsAt() == null || slot.getFinishesAt() == null) {
+            return;
+        }
+        AppointmentSlot previous = slots.put(slot.getId(), slot);
+        if (previous != null) {
+            unlink(previous);
+        }
+        forEachTimeline(slot, timeline -> timeline.add(slot));
+        if (slot.getRoomName() != null) {
+            // The legacy endpoints create rooms by cascade, without going through addRoom
+            roomNames.add(slot.getRoomName());
+            calendars.computeIfAbsent(slot.getRoomName(), name -> new OccupancyCalendar())
+                    .occupy(slot.getStartsAt(), slot.getFinishesAt());
+        }
+    }
+
+    public void remove(long id) {
+        AppointmentSlot slot = slots.remove(id);
+        if (slot != null) {
+            unlink(slot);
+        }
+    }
+
+    public void clear() {
+        slots.clear();
+        calendars.clear();
+        rooms.clear();
+        doctors.clear();
+        patients.clear();
+    }
+
+    private void unlink(AppointmentSlot slot) {
+        forEachTimeline(slot, timeline -> timeline.remove(slot));
+        OccupancyCalendar calendar = slot.getRoomName() == null ? null : calendars.get(slot.getRoomName());
+        if (calendar != null) {
+            calendar.release(slot.getStartsAt(), slot.getFinishesAt());
+            // The calendar cannot count, so mark again whatever still overlaps the freed minutes
+            for (AppointmentSlot other : rooms.get(slot.getRoomName()).overlapping(slot.getStartsAt(), slot.getFinishesAt())) {
+                calendar.occupy(other.getStartsAt(), other.getFinishesAt());
+            }
+        }
+    }
+
+    private void forEachTimeline(AppointmentSlot slot, Consumer<ScheduleTimeline> action) {
+        if (slot.getRoomName() != null) {
+            action.accept(rooms.computeIfAbsent(slot.getRoomName(), name -> new ScheduleTimeline()));
+        }
+        if (isKnown(slot.getDoctorId())) {
+            action.accept(doctors.computeIfAbsent(slot.getDoctorId(), id -> new ScheduleTimeline()));
+        }
+        if (isKnown(slot.getPatientId())) {
+            action.accept(patients.computeIfAbsent(slot.getPatientId(), id -> new ScheduleTimeline()));
+        }
+    }
+
+    private static boolean isFree(ScheduleTimeline timeline, long startsAtMinute, long finishesAtMinute) {
+        return timeline == null || !timeline.overlaps(startsAtMinute, finishesAtMinute);
+    }
+
+    /**
+     * Id 0 is what an unsaved doctor or patient carries; it never names a real schedule.
+     */
+    static boolean isKnown(Long id) {
+        return id != null && id != 0;
+    }
+
+}
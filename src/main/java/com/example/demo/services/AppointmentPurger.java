@@ -0,0 +1,61 @@
+package com.example.demo.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.PurgeReport;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * Deletes old appointments in bounded chunks. The purge itself is not
+ * transactional: every chunk is one set-based delete that commits on its own,
+ * so locks on the appointment table are only held for one chunk at a time.
+ */
+@Service
+public class AppointmentPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentPurger.class);
+
+    final
+    AppointmentRepository appointmentRepository;
+
+    final
+    AppointmentIndex appointmentIndex;
+
+    final
+    int chunkSize;
+
+    public AppointmentPurger(AppointmentRepository appointmentRepository, AppointmentIndex appointmentIndex,
+                             @Value("${appointments.purge.chunk-size:1000}") int chunkSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.appointmentIndex = appointmentIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    public PurgeReport purgeFinishedBefore(LocalDateTime before) {
+        long started = System.nanoTime();
+        PurgeReport report = new PurgeReport();
+        Pageable chunk = PageRequest.of(0, chunkSize);
+
+        List<Long> ids = appointmentRepository.findIdsFinishedBefore(before, chunk);
+        while (!ids.isEmpty()) {
+            appointmentRepository.deleteAllByIdInBatch(ids);
+            ids.forEach(appointmentIndex::remove);
+            report.chunk(ids.size());
+            ids = appointmentRepository.findIdsFinishedBefore(before, chunk);
+        }
+
+        report.finished((System.nanoTime() - started) / 1_000_000);
+        log.info("Purged {} appointments finished before {} in {} chunks ({} ms)",
+                report.getDeleted(), before, report.getChunks(), report.getElapsedMillis());
+        return report;
+    }
+
+}
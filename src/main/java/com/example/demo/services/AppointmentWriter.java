@@ -0,0 +1,66 @@
+package com.example.demo.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * Inserts appointments whose participants are given by id.
+ * Patient, doctor and room are attached as uninitialized references, so the
+ * insert is the only statement; an unknown id is rejected by the foreign keys
+ * when the insert is flushed, as a {@link org.springframework.dao.DataIntegrityViolationException}.
+ */
+@Service
+public class AppointmentWriter {
+
+    final
+    EntityManager entityManager;
+
+    final
+    AppointmentRepository appointmentRepository;
+
+    public AppointmentWriter(EntityManager entityManager, AppointmentRepository appointmentRepository) {
+        this.entityManager = entityManager;
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    @Transactional
+    public Appointment insertByReference(AppointmentRequest request) {
+        Appointment appointment = new Appointment(
+                entityManager.getReference(Patient.class, request.getPatientId()),
+                entityManager.getReference(Doctor.class, request.getDoctorId()),
+                entityManager.getReference(Room.class, request.getRoomName()),
+                request.getStartsAt(), request.getFinishesAt());
+        return appointmentRepository.saveAndFlush(appointment);
+    }
+
+    /**
+     * Inserts all requests in one transaction; the inserts go out in JDBC batches.
+     */
+    @Transactional
+    public List<Appointment> insertAllByReference(List<AppointmentRequest> requests) {
+        List<Appointment> appointments = new ArrayList<>(requests.size());
+        for (AppointmentRequest request : requests) {
+            appointments.add(new Appointment(
+                    entityManager.getReference(Patient.class, request.getPatientId()),
+                    entityManager.getReference(Doctor.class, request.getDoctorId()),
+                    entityManager.getReference(Room.class, request.getRoomName()),
+                    request.getStartsAt(), request.getFinishesAt()));
+        }
+        List<Appointment> saved = appointmentRepository.saveAll(appointments);
+        appointmentRepository.flush();
+        return saved;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.example.demo.services;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Serializes bookings that touch the same schedule: the same room, doctor or
+ * patient. Bookings holding different keys run in parallel.
+ */
+public interface BookingLocks {
+
+    static String roomKey(String roomName) {
+        return "room:" + roomName;
+    }
+
+    static String doctorKey(long doctorId) {
+        return "doctor:" + doctorId;
+    }
+
+    static String patientKey(long patientId) {
+        return "patient:" + patientId;
+    }
+
+    static boolean isRoomKey(String key) {
+        return key.startsWith("room:");
+    }
+
+    <T> T withLock(String key, Supplier<T> action);
+
+    /**
+     * Runs {@code action} holding the locks of every key. Implementations acquire
+     * them in a global order, so two callers with overlapping keys cannot deadlock.
+     */
+    <T> T withLocks(Collection<String> keys, Supplier<T> action);
+
+}
@@ -0,0 +1,16 @@
+package com.example.demo.services;
+
+/**
+ * Result of trying to book one appointment.
+ */
+public enum BookingOutcome {
+    ACCEPTED,
+    BAD_TIME,
+    MISSING_ROOM,
+    ROOM_TAKEN,
+    NO_ROOM_AVAILABLE,
+    DOCTOR_BUSY,
+    PATIENT_BUSY,
+    MISSING_REFERENCE,
+    UNKNOWN_REFERENCE
+}
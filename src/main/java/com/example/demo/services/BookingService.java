@@ -0,0 +1,457 @@
+package com.example.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.BookingResult;
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+
+/**
+ * Validates and stores appointments, one at a time or in batches.
+ * Conflicts are checked against the in-memory {@link AppointmentIndex} or,
+ * when {@code appointments.conflict-check=database}, against the database.
+ * A booking is rejected when its room, its doctor or its patient already has an
+ * overlapping appointment. The checks and the insert run under the
+ * {@link BookingLocks} of all three, so two conflicting bookings cannot both
+ * pass; bookings that share none of them do not wait for each other.
+ * <p>
+ * Every booking counts its outcome in {@value #BOOKINGS}; the conflict check and
+ * the insert are timed apart, as {@value #CONFLICT_CHECK} and {@value #SAVE}; the
+ * conflict check also shows up in the request's {@link RequestTimings}.
+ */
+@Service
+public class BookingService {
+
+    public static final String BOOKINGS = "appointments.bookings";
+
+    public static final String CONFLICT_CHECK = "appointments.booking.conflict-check";
+
+    public static final String SAVE = "appointments.booking.save";
+
+    /** Length of every booked visit. */
+    static final Duration VISIT_LENGTH = Duration.ofHours(1);
+
+    final
+    AppointmentRepository appointmentRepository;
+
+    final
+    AppointmentIndex appointmentIndex;
+
+    final
+    AppointmentWriter appointmentWriter;
+
+    final
+    BookingLocks bookingLocks;
+
+    final
+    boolean databaseConflictCheck;
+
+    final
+    List<String> roomPreference;
+
+    private final Map<BookingOutcome, Counter> outcomeCounters = new EnumMap<>(BookingOutcome.class);
+
+    private final Timer conflictCheckTimer;
+
+    private final Timer saveTimer;
+
+    public BookingService(AppointmentRepository appointmentRepository, AppointmentIndex appointmentIndex,
+                          AppointmentWriter appointmentWriter, BookingLocks bookingLocks,
+                          @Value("${appointments.conflict-check:index}") String conflictCheck,
+                          @Value("${appointments.room-preference:}") String roomPreference,
+                          MeterRegistry meterRegistry) {
+        this.appointmentRepository = appointmentRepository;
+        this.appointmentIndex = appointmentIndex;
+        this.appointmentWriter = appointmentWriter;
+        this.bookingLocks = bookingLocks;
+        this.databaseConflictCheck = "database".equalsIgnoreCase(conflictCheck);
+        this.roomPreference = new ArrayList<>();
+        for (String roomName : roomPreference.split(",")) {
+            if (!roomName.trim().isEmpty()) {
+                this.roomPreference.add(roomName.trim());
+            }
+        }
+        for (BookingOutcome outcome : BookingOutcome.values()) {
+            outcomeCounters.put(outcome, Counter.builder(BOOKINGS)
+                    .description("Booking attempts by outcome")
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry));
+        }
+        this.conflictCheckTimer = Timer.builder(CONFLICT_CHECK)
+                .description("Room, doctor and patient availability check of one booking")
+                .tag("source", databaseConflictCheck ? "database" : "index")
+                .register(meterRegistry);
+        this.saveTimer = Timer.builder(SAVE)
+                .description("Insert of the accepted bookings")
+                .register(meterRegistry);
+    }
+
+    public BookingOutcome book(Appointment appointment) {
+        return counted(tryBook(appointment));
+    }
+
+    private BookingOutcome tryBook(Appointment appointment) {
+        String roomName = roomNameOf(appointment);
+        Long doctorId = doctorIdOf(appointment);
+        Long patientId = patientIdOf(appointment);
+        BookingOutcome outcome = validate(roomName, appointment.getStartsAt(), appointment.getFinishesAt());
+        if (outcome != BookingOutcome.ACCEPTED) {
+            return outcome;
+        }
+
+        return bookingLocks.withLocks(lockKeys(roomName, doctorId, patientId), () -> {
+            BookingOutcome conflict = checkAvailability(roomName, doctorId, patientId,
+                    appointment.getStartsAt(), appointment.getFinishesAt());
+            if (conflict != BookingOutcome.ACCEPTED) {
+                return conflict;
+            }
+            try {
+                saveTimer.record(() -> appointmentRepository.save(appointment));
+            } catch (DataIntegrityViolationException e) {
+                return outcomeOf(e);
+            }
+            appointmentIndex.add(appointment);
+            return BookingOutcome.ACCEPTED;
+        });
+    }
+
+    /**
+     * Books an appointment whose participants are given by id, without loading
+     * or cascading into them. Single bookings always report index 0.
+     * When the request names no room, any free room is picked (see {@link #bookAnyRoom})
+     * and reported in the result; the request itself is left as it is.
+     */
+    public BookingResult bookByReference(AppointmentRequest request) {
+        BookingResult result = tryBookByReference(request);
+        counted(result.getOutcome());
+        return result;
+    }
+
+    private BookingResult tryBookByReference(AppointmentRequest request) {
+        if (request.getPatientId() == null || request.getDoctorId() == null) {
+            return new BookingResult(0, BookingOutcome.MISSING_REFERENCE, null);
+        }
+        if (!isValidTime(request.getStartsAt(), request.getFinishesAt())) {
+            return new BookingResult(0, BookingOutcome.BAD_TIME, null);
+        }
+        if (request.getRoomName() == null) {
+            return bookAnyRoom(request);
+        }
+
+        return bookingLocks.withLocks(lockKeys(request.getRoomName(), request.getDoctorId(), request.getPatientId()),
+                () -> insertLocked(request));
+    }
+
+    /**
+     * Tries the rooms the index reports free for the slot, most preferred first
+     * ({@code appointments.room-preference}, then by name). Each attempt re-checks
+     * its room under the room's lock, so a room taken by a concurrent request in
+     * the meantime only moves this one on to the next candidate.
+     */
+    private BookingResult bookAnyRoom(AppointmentRequest request) {
+        for (String roomName : roomCandidates(request.getStartsAt(), request.getFinishesAt())) {
+            AppointmentRequest attempt = new AppointmentRequest(request.getPatientId(), request.getDoctorId(),
+                    roomName, request.getStartsAt(), request.getFinishesAt());
+            BookingResult result = bookingLocks.withLocks(
+                    lockKeys(roomName, request.getDoctorId(), request.getPatientId()), () -> insertLocked(attempt));
+            if (result.getOutcome() != BookingOutcome.ROOM_TAKEN) {
+                return result;
+            }
+        }
+        return new BookingResult(0, BookingOutcome.NO_ROOM_AVAILABLE, null);
+    }
+
+    private BookingResult insertLocked(AppointmentRequest request) {
+        BookingOutcome conflict = checkAvailability(request.getRoomName(), request.getDoctorId(), request.getPatientId(),
+                request.getStartsAt(), request.getFinishesAt());
+        if (conflict != BookingOutcome.ACCEPTED) {
+            return new BookingResult(0, conflict, null);
+        }
+        Appointment appointment;
+        try {
+            appointment = saveTimer.record(() -> appointmentWriter.insertByReference(request));
+        } catch (DataIntegrityViolationException e) {
+            return new BookingResult(0, outcomeOf(e), null);
+        }
+        appointmentIndex.add(appointment);
+        return new BookingResult(0, BookingOutcome.ACCEPTED, appointment.getId(), request.getRoomName());
+    }
+
+    /**
+     * Rooms the index reports free for a slot, most preferred first.
+     */
+    public List<String> roomCandidates(LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return inPreferenceOrder(appointmentIndex.freeRooms(startsAt, finishesAt));
+    }
+
+    /**
+     * The given rooms ordered by {@code appointments.room-preference}, then by name.
+     */
+    public List<String> inPreferenceOrder(Collection<String> roomNames) {
+        List<String> ordered = new ArrayList<>(roomNames);
+        ordered.sort(Comparator.comparingInt(this::preferenceOf).thenComparing(Comparator.naturalOrder()));
+        return ordered;
+    }
+
+    private int preferenceOf(String roomName) {
+        int rank = roomPreference.indexOf(roomName);
+        return rank < 0 ? roomPreference.size() : rank;
+    }
+
+    /**
+     * Books a batch in a single pass: every item is checked against the existing
+     * bookings and against the items accepted before it, then all accepted items
+     * are inserted in one transaction (and in JDBC batches). The locks of every
+     * room, doctor and patient named in the batch are held for the whole pass.
+     * If the insert violates a constraint, nothing is stored and every item that
+     * had been accepted reports that violation.
+     */
+    public List<BookingResult> bookAll(List<Appointment> appointments) {
+        Set<String> keys = new HashSet<>();
+        for (Appointment appointment : appointments) {
+            keys.addAll(lockKeys(roomNameOf(appointment), doctorIdOf(appointment), patientIdOf(appointment)));
+        }
+        return bookingLocks.withLocks(keys, () -> bookAllLocked(appointments));
+    }
+
+    private List<BookingResult> bookAllLocked(List<Appointment> appointments) {
+        // Timelines of the items accepted so far, keyed like the locks
+        Map<String, ScheduleTimeline> batch = new HashMap<>();
+        List<Appointment> accepted = new ArrayList<>();
+        BookingOutcome[] outcomes = new BookingOutcome[appointments.size()];
+
+        for (int i = 0; i < appointments.size(); i++) {
+            Appointment appointment = appointments.get(i);
+            BookingOutcome outcome = check(appointment);
+            if (outcome == BookingOutcome.ACCEPTED) {
+                outcome = checkBatch(batch, appointment);
+            }
+            if (outcome == BookingOutcome.ACCEPTED) {
+                AppointmentSlot slot = new AppointmentSlot(i, roomNameOf(appointment),
+                        appointment.getStartsAt(), appointment.getFinishesAt());
+                for (String key : lockKeys(roomNameOf(appointment), doctorIdOf(appointment), patientIdOf(appointment))) {
+                    batch.computeIfAbsent(key, k -> new ScheduleTimeline()).add(slot);
+                }
+                accepted.add(appointment);
+            }
+            outcomes[i] = outcome;
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                saveTimer.record(() -> appointmentRepository.saveAll(accepted));
+                accepted.forEach(appointmentIndex::add);
+            } catch (DataIntegrityViolationException e) {
+                BookingOutcome violation = outcomeOf(e);
+                for (int i = 0; i < outcomes.length; i++) {
+                    if (outcomes[i] == BookingOutcome.ACCEPTED) {
+                        outcomes[i] = violation;
+                    }
+                }
+            }
+        }
+
+        List<BookingResult> results = new ArrayList<>(appointments.size());
+        for (int i = 0; i < appointments.size(); i++) {
+            counted(outcomes[i]);
+            Long id = outcomes[i] == BookingOutcome.ACCEPTED ? appointments.get(i).getId() : null;
+            results.add(new BookingResult(i, outcomes[i], id));
+        }
+        return results;
+    }
+
+    private static BookingOutcome checkBatch(Map<String, ScheduleTimeline> batch, Appointment appointment) {
+        LocalDateTime startsAt = appointment.getStartsAt();
+        LocalDateTime finishesAt = appointment.getFinishesAt();
+        if (overlaps(batch.get(BookingLocks.roomKey(roomNameOf(appointment))), startsAt, finishesAt)) {
+            return BookingOutcome.ROOM_TAKEN;
+        }
+        Long doctorId = doctorIdOf(appointment);
+        if (AppointmentIndex.isKnown(doctorId)
+                && overlaps(batch.get(BookingLocks.doctorKey(doctorId)), startsAt, finishesAt)) {
+            return BookingOutcome.DOCTOR_BUSY;
+        }
+        Long patientId = patientIdOf(appointment);
+        if (AppointmentIndex.isKnown(patientId)
+                && overlaps(batch.get(BookingLocks.patientKey(patientId)), startsAt, finishesAt)) {
+            return BookingOutcome.PATIENT_BUSY;
+        }
+        return BookingOutcome.ACCEPTED;
+    }
+
+    /**
+     * Checks an appointment without booking it. The answer is only stable while
+     * the caller holds the locks of its room, doctor and patient.
+     */
+    public BookingOutcome check(Appointment appointment) {
+        String roomName = roomNameOf(appointment);
+        BookingOutcome outcome = validate(roomName, appointment.getStartsAt(), appointment.getFinishesAt());
+        if (outcome != BookingOutcome.ACCEPTED) {
+            return outcome;
+        }
+        return checkAvailability(roomName, doctorIdOf(appointment), patientIdOf(appointment),
+                appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    private BookingOutcome validate(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!isValidTime(startsAt, finishesAt)) {
+            return BookingOutcome.BAD_TIME;
+        }
+        if (roomName == null) {
+            return BookingOutcome.MISSING_ROOM;
+        }
+        return BookingOutcome.ACCEPTED;
+    }
+
+    /**
+     * Room first, then doctor, then patient; each check is a lookup in a sorted
+     * timeline or an indexed range query, so none of them scans other schedules.
+     * Like {@link #check}, the answer is only stable under the locks of all three.
+     */
+    public BookingOutcome checkAvailability(String roomName, Long doctorId, Long patientId,
+                                            LocalDateTime startsAt, LocalDateTime finishesAt) {
+        long start = System.nanoTime();
+        BookingOutcome outcome = findConflict(roomName, doctorId, patientId, startsAt, finishesAt);
+        long nanos = System.nanoTime() - start;
+        conflictCheckTimer.record(nanos, TimeUnit.NANOSECONDS);
+        RequestTimings.add(RequestTimings.CHECK, nanos);
+        return outcome;
+    }
+
+    private BookingOutcome findConflict(String roomName, Long doctorId, Long patientId,
+                                        LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!isRoomAvailable(roomName, startsAt, finishesAt)) {
+            return BookingOutcome.ROOM_TAKEN;
+        }
+        if (AppointmentIndex.isKnown(doctorId) && !isDoctorAvailable(doctorId, startsAt, finishesAt)) {
+            return BookingOutcome.DOCTOR_BUSY;
+        }
+        if (AppointmentIndex.isKnown(patientId) && !isPatientAvailable(patientId, startsAt, finishesAt)) {
+            return BookingOutcome.PATIENT_BUSY;
+        }
+        return BookingOutcome.ACCEPTED;
+    }
+
+    private boolean isRoomAvailable(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (databaseConflictCheck) {
+            return appointmentRepository.findOverlappingSlots(roomName, earliestOverlappingStart(startsAt), startsAt,
+                    finishesAt).isEmpty();
+        }
+        return appointmentIndex.isRoomAvailable(roomName, startsAt, finishesAt);
+    }
+
+    private boolean isDoctorAvailable(long doctorId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (databaseConflictCheck) {
+            return !appointmentRepository
+                    .existsByDoctorIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                            doctorId, earliestOverlappingStart(startsAt), finishesAt, startsAt);
+        }
+        return appointmentIndex.isDoctorAvailable(doctorId, startsAt, finishesAt);
+    }
+
+    private boolean isPatientAvailable(long patientId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (databaseConflictCheck) {
+            return !appointmentRepository
+                    .existsByPatientIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                            patientId, earliestOverlappingStart(startsAt), finishesAt, startsAt);
+        }
+        return appointmentIndex.isPatientAvailable(patientId, startsAt, finishesAt);
+    }
+
+    /**
+     * Counts the outcome of a booking made outside this service, such as a {@link ScheduleSolver} commit.
+     */
+    BookingOutcome counted(BookingOutcome outcome) {
+        outcomeCounters.get(outcome).increment();
+        return outcome;
+    }
+
+    /**
+     * Times an insert of accepted bookings made outside this service.
+     */
+    <T> T timedSave(Supplier<T> insert) {
+        return saveTimer.record(insert);
+    }
+
+    private static boolean overlaps(ScheduleTimeline timeline, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return timeline != null && timeline.overlaps(startsAt, finishesAt);
+    }
+
+    /**
+     * Room, doctor and patient locks share one key space, so each kind gets a prefix.
+     */
+    static List<String> lockKeys(String roomName, Long doctorId, Long patientId) {
+        List<String> keys = new ArrayList<>(3);
+        if (roomName != null) {
+            keys.add(BookingLocks.roomKey(roomName));
+        }
+        if (AppointmentIndex.isKnown(doctorId)) {
+            keys.add(BookingLocks.doctorKey(doctorId));
+        }
+        if (AppointmentIndex.isKnown(patientId)) {
+            keys.add(BookingLocks.patientKey(patientId));
+        }
+        return keys;
+    }
+
+    static boolean isValidTime(LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return startsAt != null && finishesAt != null && startsAt.plus(VISIT_LENGTH).isEqual(finishesAt);
+    }
+
+    /**
+     * No visit is longer than {@link #VISIT_LENGTH}, so an appointment overlapping a slot
+     * must start after this. Bounds the database checks to a short index range.
+     */
+    static LocalDateTime earliestOverlappingStart(LocalDateTime startsAt) {
+        return startsAt.minus(VISIT_LENGTH);
+    }
+
+    private static String roomNameOf(Appointment appointment) {
+        return appointment.getRoom() == null ? null : appointment.getRoom().getRoomName();
+    }
+
+    private static Long doctorIdOf(Appointment appointment) {
+        return appointment.getDoctor() == null ? null : appointment.getDoctor().getId();
+    }
+
+    private static Long patientIdOf(Appointment appointment) {
+        return appointment.getPatient() == null ? null : appointment.getPatient().getId();
+    }
+
+    /**
+     * The unique (room, start) constraint is the last guard against double bookings
+     * made behind this node's back; any other violation is a dangling reference.
+     */
+    static BookingOutcome outcomeOf(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            String constraint = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            if (constraint != null && constraint.toLowerCase().contains(Appointment.UNIQUE_ROOM_START)) {
+                return BookingOutcome.ROOM_TAKEN;
+            }
+        }
+        return BookingOutcome.UNKNOWN_REFERENCE;
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.example.demo.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link BookingLocks} shared by every node that uses the same database.
+ * A lock is a row of {@code booking_locks} held with {@code SELECT ... FOR UPDATE}
+ * on a dedicated connection, and released by ending that connection's transaction
+ * once the action has finished (and committed its own work).
+ * Every room has its own row. Doctors and patients, which far outnumber rooms,
+ * share {@code appointments.locks.database.stripes} rows, so the table stays small
+ * and two of them only rarely wait for each other.
+ * Because every holder also needs a second pooled connection for the booking
+ * itself, at most {@code appointments.locks.database.max-holders} locks are held
+ * at once, which may be at most half of {@code spring.datasource.hikari.maximum-pool-size}
+ * and defaults to exactly half. Errors while releasing come after the action has
+ * finished, so they are logged rather than thrown. The time spent waiting for the
+ * locks, including that cap, is recorded as {@value #LOCK_WAIT}.
+ */
+@Component
+@ConditionalOnProperty(name = "appointments.locks", havingValue = "database")
+public class DatabaseBookingLocks implements BookingLocks {
+
+    public static final String LOCK_WAIT = "appointments.booking.lock-wait";
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBookingLocks.class);
+
+    private static final String INSERT = "insert into booking_locks (lock_key) values (?)";
+
+    /**
+     * Row keys whose existence is cached; past this size the cache starts over.
+     */
+    private static final int MAX_KNOWN_KEYS = 10_000;
+
+    private static final String SELECT_FOR_UPDATE = "select lock_key from booking_locks where lock_key = ? for update";
+
+    final
+    DataSource dataSource;
+
+    final
+    int stripes;
+
+    final
+    long slowWaitMillis;
+
+    private final Semaphore holders;
+
+    private final Set<String> knownKeys = ConcurrentHashMap.newKeySet();
+
+    private final Timer lockWaitTimer;
+
+    public DatabaseBookingLocks(DataSource dataSource,
+                                @Value("${appointments.locks.database.max-holders:0}") int maxHolders,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                @Value("${appointments.locks.database.stripes:64}") int stripes,
+                                @Value("${appointments.locks.database.slow-wait-ms:200}") long slowWaitMillis,
+                                MeterRegistry meterRegistry) {
+        if (maxHolders > poolSize / 2) {
+            throw new IllegalStateException("appointments.locks.database.max-holders is " + maxHolders
+                    + " but each holder needs two of the " + poolSize + " pooled connections");
+        }
+        this.dataSource = dataSource;
+        this.holders = new Semaphore(maxHolders > 0 ? maxHolders : Math.max(1, poolSize / 2), true);
+        this.stripes = Math.max(1, stripes);
+        this.slowWaitMillis = slowWaitMillis;
+        this.lockWaitTimer = Timer.builder(LOCK_WAIT)
+                .description("Wait for a free holder and the booking_locks rows of one booking")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T withLock(String key, Supplier<T> action) {
+        return withLocks(Collections.singleton(key), action);
+    }
+
+    @Override
+    public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        // Ascending row order is the global lock order
+        SortedSet<String> ordered = new TreeSet<>();
+        for (String key : keys) {
+            ordered.add(rowOf(key));
+        }
+        long started = System.nanoTime();
+        try {
+            holders.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting to lock " + ordered, e);
+        }
+
+        try {
+            Connection connection = lockAll(ordered);
+            try {
+                recordWait(ordered, System.nanoTime() - started);
+                return action.get();
+            } finally {
+                release(connection, ordered);
+            }
+        } finally {
+            holders.release();
+        }
+    }
+
+    private String rowOf(String key) {
+        return BookingLocks.isRoomKey(key) ? key : "stripe:" + Math.floorMod(key.hashCode(), stripes);
+    }
+
+    private Connection lockAll(SortedSet<String> keys) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            for (String key : keys) {
+                ensureRow(connection, key);
+            }
+            connection.setAutoCommit(false);
+            for (String key : keys) {
+                lock(connection, key);
+            }
+            return connection;
+        } catch (SQLException e) {
+            if (connection != null) {
+                release(connection, keys);
+            }
+            throw new CannotAcquireLockException("Could not lock " + keys, e);
+        }
+    }
+
+    private void release(Connection connection, SortedSet<String> keys) {
+        try {
+            try {
+                if (!connection.getAutoCommit()) {
+                    // Nothing was written on this connection; ending the transaction releases the rows
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.warn("Could not release the locks of {}", keys, e);
+        }
+    }
+
+    private void ensureRow(Connection connection, String key) throws SQLException {
+        if (knownKeys.contains(key)) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            insert.setString(1, key);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            // Another node or thread created it first
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+        }
+        if (knownKeys.size() >= MAX_KNOWN_KEYS) {
+            knownKeys.clear();
+        }
+        knownKeys.add(key);
+    }
+
+    private void lock(Connection connection, String key) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_FOR_UPDATE)) {
+            select.setString(1, key);
+            try (ResultSet row = select.executeQuery()) {
+                if (!row.next()) {
+                    throw new SQLException("No lock row for " + key);
+                }
+            }
+        }
+    }
+
+    private void recordWait(SortedSet<String> keys, long nanos) {
+        lockWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis >= slowWaitMillis) {
+            log.warn("Waited {} ms to lock {}", millis, keys);
+        } else {
+            log.debug("Waited {} ms to lock {}", millis, keys);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.example.demo.services;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.entities.PooledSequenceGenerator;
+
+/**
+ * Moves every {@link PooledSequenceGenerator} sequence past the highest id already
+ * in its table. {@code ddl-auto=update} creates the sequences starting at 1, so on a
+ * database whose rows were numbered before the sequences existed the first inserts
+ * would reuse existing ids. Runs once at startup, before any id has been handed out.
+ */
+@Component
+public class IdSequences {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequences.class);
+
+    final
+    SessionFactoryImplementor sessionFactory;
+
+    final
+    JdbcTemplate jdbcTemplate;
+
+    public IdSequences(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    public void advancePastExistingIds() {
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            if (persister.getIdentifierGenerator() instanceof PooledSequenceGenerator) {
+                advance((AbstractEntityPersister) persister,
+                        ((SequenceStyleGenerator) persister.getIdentifierGenerator()).getDatabaseStructure());
+            }
+        }
+    }
+
+    private void advance(AbstractEntityPersister persister, DatabaseStructure sequence) {
+        Long maxId = jdbcTemplate.queryForObject("select max(" + persister.getIdentifierColumnNames()[0] + ") from "
+                + persister.getTableName(), Long.class);
+        if (maxId == null) {
+            return;
+        }
+
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        long nextId = maxId + 1;
+        if (sequence.isPhysicalSequence()) {
+            // Reading a sequence draws from it; the block drawn here is simply skipped.
+            Long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequence.getName()), Long.class);
+            if (next != null && next >= nextId) {
+                return;
+            }
+            jdbcTemplate.execute("alter sequence " + sequence.getName() + " restart with " + nextId);
+        } else {
+            int updated = jdbcTemplate.update("update " + sequence.getName() + " set "
+                    + SequenceStyleGenerator.DEF_VALUE_COLUMN + " = ? where " + SequenceStyleGenerator.DEF_VALUE_COLUMN
+                    + " < ?", nextId, nextId);
+            if (updated == 0) {
+                return;
+            }
+        }
+        log.info("Advanced sequence {} to {}, past the ids already in {}", sequence.getName(), nextId,
+                persister.getTableName());
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.demo.services;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Adds the JDBC statements of a Hibernate session to the {@link RequestTimings}
+ * of the current request. Hibernate creates one listener per session.
+ */
+public class JdbcTimingListener extends BaseSessionEventListener {
+
+    private long prepareStart;
+    private long executeStart;
+    private long batchStart;
+    private long prepareNanos;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        prepareStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        prepareNanos += System.nanoTime() - prepareStart;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(System.nanoTime() - executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(System.nanoTime() - batchStart);
+    }
+
+    /**
+     * Counts one statement (or batch) and charges it with the preparations since the last one.
+     */
+    private void record(long executeNanos) {
+        RequestTimings.add(RequestTimings.DB, prepareNanos + executeNanos);
+        prepareNanos = 0;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.example.demo.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.entities.Person;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bulk loads doctors or patients from a CSV or JSON array body.
+ * The body is parsed row by row, rows are persisted in JDBC batches and the
+ * persistence context is flushed and cleared after every batch, so neither the
+ * file nor the imported entities are ever held in memory as a whole.
+ * Invalid rows are reported and skipped, but a body that cannot be read to the end,
+ * such as a truncated JSON array, rolls back the whole import.
+ */
+@Service
+public class PersonImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonImporter.class);
+
+    private static final int COLUMNS = 4;
+
+    final
+    EntityManager entityManager;
+
+    final
+    ObjectMapper objectMapper;
+
+    final
+    int batchSize;
+
+    public PersonImporter(EntityManager entityManager, ObjectMapper objectMapper,
+                          @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Expects {@code firstName,lastName,age,email} lines, optionally preceded by that header.
+     * Fields are not quoted.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public <T extends Person> ImportReport importCsv(InputStream body, Supplier<T> factory) throws IOException {
+        Batch<T> batch = new Batch<>(factory);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String line;
+        long row = 0;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (line.trim().isEmpty() || (row == 1 && line.trim().toLowerCase().startsWith("firstname"))) {
+                continue;
+            }
+
+            String[] columns = line.split(",", -1);
+            if (columns.length != COLUMNS) {
+                batch.report.failed(row, "expected " + COLUMNS + " columns but found " + columns.length);
+                continue;
+            }
+            batch.add(row, columns[0], columns[1], columns[2], columns[3]);
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Expects a JSON array of {@code {firstName, lastName, age, email}} objects.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public <T extends Person> ImportReport importJson(InputStream body, Supplier<T> factory) throws IOException {
+        Batch<T> batch = new Batch<>(factory);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                batch.report.failed(0, "expected a JSON array");
+                return batch.finish();
+            }
+
+            long row = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                row++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    batch.report.failed(row, "expected a JSON object");
+                    continue;
+                }
+
+                JsonNode node = parser.readValueAsTree();
+                batch.add(row, text(node, "firstName"), text(node, "lastName"), text(node, "age"), text(node, "email"));
+            }
+        }
+        return batch.finish();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? "" : value.asText();
+    }
+
+    private class Batch<T extends Person> {
+
+        private final Supplier<T> factory;
+        private final ImportReport report = new ImportReport();
+        private final long startedAt = System.nanoTime();
+        private int pending;
+
+        Batch(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        void add(long row, String firstName, String lastName, String age, String email) {
+            if (firstName.trim().isEmpty() || lastName.trim().isEmpty()) {
+                report.failed(row, "firstName and lastName are required");
+                return;
+            }
+
+            int parsedAge;
+            try {
+                parsedAge = Integer.parseInt(age.trim());
+            } catch (NumberFormatException e) {
+                report.failed(row, "age is not a number: " + age);
+                return;
+            }
+            if (parsedAge < 0) {
+                report.failed(row, "age must not be negative");
+                return;
+            }
+
+            T person = factory.get();
+            person.setFirstName(firstName.trim());
+            person.setLastName(lastName.trim());
+            person.setAge(parsedAge);
+            person.setEmail(email.trim());
+            entityManager.persist(person);
+            report.imported();
+
+            if (++pending == batchSize) {
+                flush();
+            }
+        }
+
+        ImportReport finish() {
+            flush();
+            report.finished((System.nanoTime() - startedAt) / 1_000_000);
+            log.info("Imported {} rows ({} rejected) in {} ms, {} rows/s",
+                    report.getImported(), report.getFailed(), report.getElapsedMillis(), report.getRowsPerSecond());
+            return report;
+        }
+
+        private void flush() {
+            if (pending > 0) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.example.demo.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Time spent in each phase of the request handled by the current thread, for the
+ * {@code Server-Timing} header. Phases may nest: {@link #REPOSITORY} includes the
+ * {@link #DB} statements issued inside repository calls, so the difference between
+ * the two is mostly Hibernate hydrating rows into entities.
+ * Outside a request (between {@link #start} and {@link #end}) recording is a no-op.
+ */
+public final class RequestTimings {
+
+    /** JDBC statements run through Hibernate: prepare plus execute. */
+    public static final String DB = "db";
+
+    /** Spring Data repository calls, including the statements they run and the hydration of their results. */
+    public static final String REPOSITORY = "repo";
+
+    /** Room, doctor and patient conflict check of a booking. */
+    public static final String CHECK = "check";
+
+    /** Reading and writing JSON bodies. */
+    public static final String JSON = "json";
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void add(String phase, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            long[] phaseTotals = timings.phases.computeIfAbsent(phase, p -> new long[2]);
+            phaseTotals[0]++;
+            phaseTotals[1] += nanos;
+        }
+    }
+
+    /**
+     * Recorded phases in the order they first occurred.
+     */
+    public Set<String> getPhases() {
+        return Collections.unmodifiableSet(phases.keySet());
+    }
+
+    public long getCount(String phase) {
+        long[] phaseTotals = phases.get(phase);
+        return phaseTotals == null ? 0 : phaseTotals[0];
+    }
+
+    public long getNanos(String phase) {
+        long[] phaseTotals = phases.get(phase);
+        return phaseTotals == null ? 0 : phaseTotals[1];
+    }
+
+}
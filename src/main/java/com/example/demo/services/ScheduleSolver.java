@@ -0,0 +1,280 @@
+package com.example.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.RoomAssignment;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.EpochMinutes;
+
+/**
+ * Packs a batch of appointment requests into the known rooms.
+ * <p>
+ * Requests are sorted by start time and split into groups that cannot overlap
+ * each other (normally one per day; a request running past midnight merges the
+ * two days). Each group is solved by interval partitioning: every request takes
+ * the most preferred room that is free both in the batch so far and in the
+ * {@link AppointmentIndex}. With no prior bookings this first-fit order uses the
+ * minimum number of rooms. Groups are independent, so they are solved in
+ * parallel on the common fork-join pool.
+ */
+@Service
+public class ScheduleSolver {
+
+    private static final Comparator<AppointmentRequest> BY_TIME =
+            Comparator.comparing(AppointmentRequest::getStartsAt).thenComparing(AppointmentRequest::getFinishesAt);
+
+    final
+    AppointmentIndex appointmentIndex;
+
+    final
+    AppointmentWriter appointmentWriter;
+
+    final
+    BookingLocks bookingLocks;
+
+    final
+    BookingService bookingService;
+
+    public ScheduleSolver(AppointmentIndex appointmentIndex, AppointmentWriter appointmentWriter,
+                          BookingLocks bookingLocks, BookingService bookingService) {
+        this.appointmentIndex = appointmentIndex;
+        this.appointmentWriter = appointmentWriter;
+        this.bookingLocks = bookingLocks;
+        this.bookingService = bookingService;
+    }
+
+    /**
+     * Proposes a room for every request without booking anything.
+     */
+    public List<RoomAssignment> propose(List<AppointmentRequest> requests) {
+        return solve(requests);
+    }
+
+    /**
+     * Solves the batch, then books it holding the locks of the proposed rooms and of
+     * the doctors and patients of the accepted requests. Under the locks every accepted
+     * request is checked again with the configured conflict check, because its room may
+     * have been taken since it was proposed; such a request reports the conflict.
+     * The rest are inserted in one transaction, in JDBC batches. If that insert violates
+     * a constraint, nothing is stored and the requests are inserted one by one instead,
+     * so that each reports its own outcome. Outcomes and inserts are recorded in the
+     * {@link BookingService} metrics like single bookings.
+     */
+    public List<RoomAssignment> commit(List<AppointmentRequest> requests) {
+        List<RoomAssignment> proposal = solve(requests);
+        Set<String> keys = new HashSet<>();
+        for (RoomAssignment assignment : proposal) {
+            if (assignment.getOutcome() == BookingOutcome.ACCEPTED) {
+                AppointmentRequest request = requests.get(assignment.getIndex());
+                keys.addAll(BookingService.lockKeys(assignment.getRoomName(),
+                        request.getDoctorId(), request.getPatientId()));
+            }
+        }
+        List<RoomAssignment> results = keys.isEmpty()
+                ? proposal : bookingLocks.withLocks(keys, () -> commitLocked(requests, proposal));
+        for (RoomAssignment result : results) {
+            bookingService.counted(result.getOutcome());
+        }
+        return results;
+    }
+
+    private List<RoomAssignment> commitLocked(List<AppointmentRequest> requests, List<RoomAssignment> proposal) {
+        List<RoomAssignment> results = new ArrayList<>(proposal);
+        List<Integer> indexes = new ArrayList<>();
+        List<AppointmentRequest> accepted = new ArrayList<>();
+        for (RoomAssignment assignment : proposal) {
+            if (assignment.getOutcome() != BookingOutcome.ACCEPTED) {
+                continue;
+            }
+            AppointmentRequest request = requests.get(assignment.getIndex());
+            BookingOutcome conflict = bookingService.checkAvailability(assignment.getRoomName(),
+                    request.getDoctorId(), request.getPatientId(), request.getStartsAt(), request.getFinishesAt());
+            if (conflict != BookingOutcome.ACCEPTED) {
+                results.set(assignment.getIndex(), new RoomAssignment(assignment.getIndex(), conflict, null, null));
+                continue;
+            }
+            indexes.add(assignment.getIndex());
+            accepted.add(new AppointmentRequest(request.getPatientId(), request.getDoctorId(),
+                    assignment.getRoomName(), request.getStartsAt(), request.getFinishesAt()));
+        }
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        try {
+            List<Appointment> saved = bookingService.timedSave(
+                    () -> appointmentWriter.insertAllByReference(accepted));
+            for (int i = 0; i < saved.size(); i++) {
+                accept(results, indexes.get(i), saved.get(i));
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Nothing was stored; inserting one at a time tells which requests are at fault
+            for (int i = 0; i < accepted.size(); i++) {
+                AppointmentRequest request = accepted.get(i);
+                try {
+                    accept(results, indexes.get(i),
+                            bookingService.timedSave(() -> appointmentWriter.insertByReference(request)));
+                } catch (DataIntegrityViolationException violation) {
+                    results.set(indexes.get(i), new RoomAssignment(indexes.get(i),
+                            BookingService.outcomeOf(violation), null, null));
+                }
+            }
+        }
+        return results;
+    }
+
+    private void accept(List<RoomAssignment> results, int index, Appointment appointment) {
+        appointmentIndex.add(appointment);
+        RoomAssignment proposed = results.get(index);
+        results.set(index, new RoomAssignment(index, BookingOutcome.ACCEPTED, proposed.getRoomName(),
+                appointment.getId()));
+    }
+
+    List<RoomAssignment> solve(List<AppointmentRequest> requests) {
+        RoomAssignment[] results = new RoomAssignment[requests.size()];
+        List<Integer> valid = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            AppointmentRequest request = requests.get(i);
+            if (request.getPatientId() == null || request.getDoctorId() == null) {
+                results[i] = new RoomAssignment(i, BookingOutcome.MISSING_REFERENCE, null, null);
+            } else if (!BookingService.isValidTime(request.getStartsAt(), request.getFinishesAt())) {
+                results[i] = new RoomAssignment(i, BookingOutcome.BAD_TIME, null, null);
+            } else {
+                valid.add(i);
+            }
+        }
+        valid.sort(Comparator.comparing(requests::get, BY_TIME).thenComparing(Comparator.naturalOrder()));
+
+        List<String> rooms = bookingService.inPreferenceOrder(appointmentIndex.getRoomNames());
+        List<List<Integer>> groups = groupsOf(requests, valid);
+        ForkJoinPool.commonPool().invoke(new SolveGroups(requests, rooms, groups, 0, groups.size(), results));
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Splits the sorted requests wherever a new day starts and nothing earlier is still running.
+     */
+    private static List<List<Integer>> groupsOf(List<AppointmentRequest> requests, List<Integer> sorted) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> group = null;
+        LocalDate day = null;
+        LocalDateTime running = null;
+        for (int i : sorted) {
+            AppointmentRequest request = requests.get(i);
+            LocalDate startDay = request.getStartsAt().toLocalDate();
+            if (group == null || (!startDay.equals(day) && !request.getStartsAt().isBefore(running))) {
+                group = new ArrayList<>();
+                groups.add(group);
+                day = startDay;
+            }
+            group.add(i);
+            if (running == null || request.getFinishesAt().isAfter(running)) {
+                running = request.getFinishesAt();
+            }
+        }
+        return groups;
+    }
+
+    private final class SolveGroups extends RecursiveAction {
+
+        private final List<AppointmentRequest> requests;
+        private final List<String> rooms;
+        private final List<List<Integer>> groups;
+        private final int from;
+        private final int to;
+        private final RoomAssignment[] results;
+
+        SolveGroups(List<AppointmentRequest> requests, List<String> rooms, List<List<Integer>> groups,
+                    int from, int to, RoomAssignment[] results) {
+            this.requests = requests;
+            this.rooms = rooms;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int g = from; g < to; g++) {
+                    solveGroup(groups.get(g));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SolveGroups(requests, rooms, groups, from, middle, results),
+                    new SolveGroups(requests, rooms, groups, middle, to, results));
+        }
+
+        /**
+         * The requests arrive sorted by start, so a room, doctor or patient is free in the
+         * batch exactly when its latest accepted finish is not after the new start. Times
+         * are compared as {@link EpochMinutes} and rooms by their position in {@code rooms}.
+         */
+        private void solveGroup(List<Integer> group) {
+            long[] roomFreeFrom = new long[rooms.size()];
+            Arrays.fill(roomFreeFrom, Long.MIN_VALUE);
+            Map<Long, Long> doctorFreeFrom = new HashMap<>();
+            Map<Long, Long> patientFreeFrom = new HashMap<>();
+
+            for (int i : group) {
+                AppointmentRequest request = requests.get(i);
+                long startsAt = EpochMinutes.of(request.getStartsAt());
+                long finishesAt = EpochMinutes.of(request.getFinishesAt());
+                long doctorId = request.getDoctorId();
+                long patientId = request.getPatientId();
+
+                if (AppointmentIndex.isKnown(doctorId) && (isBusy(doctorFreeFrom.get(doctorId), startsAt)
+                        || !appointmentIndex.isDoctorAvailable(doctorId, startsAt, finishesAt))) {
+                    results[i] = new RoomAssignment(i, BookingOutcome.DOCTOR_BUSY, null, null);
+                    continue;
+                }
+                if (AppointmentIndex.isKnown(patientId) && (isBusy(patientFreeFrom.get(patientId), startsAt)
+                        || !appointmentIndex.isPatientAvailable(patientId, startsAt, finishesAt))) {
+                    results[i] = new RoomAssignment(i, BookingOutcome.PATIENT_BUSY, null, null);
+                    continue;
+                }
+
+                int assigned = -1;
+                for (int r = 0; r < roomFreeFrom.length; r++) {
+                    if (roomFreeFrom[r] <= startsAt
+                            && appointmentIndex.isRoomAvailable(rooms.get(r), startsAt, finishesAt)) {
+                        assigned = r;
+                        break;
+                    }
+                }
+                if (assigned < 0) {
+                    results[i] = new RoomAssignment(i, BookingOutcome.NO_ROOM_AVAILABLE, null, null);
+                    continue;
+                }
+
+                roomFreeFrom[assigned] = finishesAt;
+                doctorFreeFrom.merge(doctorId, finishesAt, Math::max);
+                patientFreeFrom.merge(patientId, finishesAt, Math::max);
+                results[i] = new RoomAssignment(i, BookingOutcome.ACCEPTED, rooms.get(assigned), null);
+            }
+        }
+
+    }
+
+    private static boolean isBusy(Long freeFrom, long startsAt) {
+        return freeFrom != null && freeFrom > startsAt;
+    }
+
+}
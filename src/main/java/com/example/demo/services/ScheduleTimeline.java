@@ -0,0 +1,144 @@
+package com.example.demo.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.EpochMinutes;
+
+/**
+ * Appointment slots of a single schedule (a room, doctor or patient) ordered by
+ * start time, kept as parallel arrays of {@link EpochMinutes}. An overlap query
+ * binary-searches to {@code startsAt - longest} and compares only the handful
+ * of neighbours starting before {@code finishesAt}, without allocating.
+ * New bookings are mostly the latest ones, so inserts rarely shift much.
+ */
+class ScheduleTimeline {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] finishes = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private AppointmentSlot[] slots = new AppointmentSlot[INITIAL_CAPACITY];
+    private int size;
+
+    private long longest;
+
+    synchronized boolean overlaps(LocalDateTime startsAt, LocalDateTime finishesAt){
+        return overlaps(EpochMinutes.of(startsAt), EpochMinutes.of(finishesAt));
+    }
+
+    synchronized boolean overlaps(long startsAt, long finishesAt){
+        for (int i = firstStartingFrom(startsAt - longest); i < size && starts[i] <= finishesAt; i++) {
+            if (Appointment.overlaps(startsAt, finishesAt, starts[i], finishes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized List<AppointmentSlot> overlapping(LocalDateTime startsAt, LocalDateTime finishesAt){
+        long from = EpochMinutes.of(startsAt);
+        long to = EpochMinutes.of(finishesAt);
+        List<AppointmentSlot> overlapping = new ArrayList<>();
+        for (int i = firstStartingFrom(from - longest); i < size && starts[i] <= to; i++) {
+            if (Appointment.overlaps(from, to, starts[i], finishes[i])) {
+                overlapping.add(slots[i]);
+            }
+        }
+        return overlapping;
+    }
+
+    synchronized void add(AppointmentSlot slot){
+        long start = slot.getStartsAtMinute();
+        long length = slot.getFinishesAtMinute() - start;
+        if (length > longest) {
+            longest = length;
+        }
+
+        int position = search(start, slot.getId());
+        if (position >= 0) {
+            finishes[position] = slot.getFinishesAtMinute();
+            slots[position] = slot;
+            return;
+        }
+        position = -position - 1;
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            finishes = Arrays.copyOf(finishes, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        int tail = size - position;
+        System.arraycopy(starts, position, starts, position + 1, tail);
+        System.arraycopy(finishes, position, finishes, position + 1, tail);
+        System.arraycopy(ids, position, ids, position + 1, tail);
+        System.arraycopy(slots, position, slots, position + 1, tail);
+        starts[position] = start;
+        finishes[position] = slot.getFinishesAtMinute();
+        ids[position] = slot.getId();
+        slots[position] = slot;
+        size++;
+    }
+
+    synchronized void remove(AppointmentSlot slot){
+        int position = search(slot.getStartsAtMinute(), slot.getId());
+        if (position < 0) {
+            return;
+        }
+        int tail = size - position - 1;
+        System.arraycopy(starts, position + 1, starts, position, tail);
+        System.arraycopy(finishes, position + 1, finishes, position, tail);
+        System.arraycopy(ids, position + 1, ids, position, tail);
+        System.arraycopy(slots, position + 1, slots, position, tail);
+        size--;
+        slots[size] = null;
+    }
+
+    synchronized boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Index of the first slot starting at or after {@code start}.
+     */
+    private int firstStartingFrom(long start){
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] < start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Position of the slot ordered by (start, id), or {@code -(insertion point) - 1} like {@link Arrays#binarySearch}.
+     */
+    private int search(long start, long id){
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = starts[middle] != start ? Long.compare(starts[middle], start) : Long.compare(ids[middle], id);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+}
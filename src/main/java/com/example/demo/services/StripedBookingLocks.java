@@ -0,0 +1,73 @@
+package com.example.demo.services;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-JVM {@link BookingLocks} backed by a fixed array of lock stripes.
+ * A key always maps to the same stripe; two keys may share one, which only
+ * costs some parallelism, never correctness. Memory stays constant however
+ * many rooms exist.
+ */
+@Component
+@ConditionalOnProperty(name = "appointments.locks", havingValue = "jvm", matchIfMissing = true)
+public class StripedBookingLocks implements BookingLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedBookingLocks(@Value("${appointments.locks.stripes:64}") int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        // Ascending stripe order is the global lock order
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (String key : keys) {
+            indexes.add(stripeOf(key));
+        }
+
+        Deque<ReentrantLock> held = new ArrayDeque<>(indexes.size());
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                lock.lock();
+                held.push(lock);
+            }
+            return action.get();
+        } finally {
+            while (!held.isEmpty()) {
+                held.pop().unlock();
+            }
+        }
+    }
+
+    int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import static org.mockito.Mockito.when;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Collections;
+
+import java.time.LocalDateTime;
+import java.time.format.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.controllers.AppointmentController;
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.repositories.*;
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentExporter;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentPurger;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.ScheduleSolver;
+import com.example.demo.services.StripedBookingLocks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@WebMvcTest(AppointmentController.class)
+@Import({AppointmentIndex.class, BookingService.class, StripedBookingLocks.class, ScheduleSolver.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "appointments.conflict-check=database")
+class AppointmentControllerDatabaseCheckUnitTest {
+
+    @MockBean
+    private AppointmentRepository appointmentRepository;
+
+    @MockBean
+    private AppointmentExporter appointmentExporter;
+
+    @MockBean
+    private AppointmentWriter appointmentWriter;
+
+    @MockBean
+    private AppointmentPurger appointmentPurger;
+
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldAskTheDatabaseForOverlappingAppointments() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        when(appointmentRepository.findOverlappingSlots("Dermatology", startsAt.minusHours(1), startsAt, finishesAt))
+                .thenReturn(Collections.singletonList(new AppointmentSlot(1, "Dermatology", startsAt, finishesAt)));
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable());
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,32 +21,70 @@ import java.util.Optional;
 import java.time.LocalDateTime;
 import java.time.format.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.PurgeReport;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentExporter;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentPurger;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.ScheduleSolver;
+import com.example.demo.services.StripedBookingLocks;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(AppointmentController.class)
+@Import({AppointmentIndex.class, BookingService.class, StripedBookingLocks.class, ScheduleSolver.class, SimpleMeterRegistry.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private AppointmentExporter appointmentExporter;
+
+    @MockBean
+    private AppointmentWriter appointmentWriter;
+
+    @MockBean
+    private AppointmentPurger appointmentPurger;
+
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private AppointmentIndex appointmentIndex;
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setup() {
+        appointmentIndex.clear();
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -64,6 +105,116 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldReturnOnlyTheCreatedAppointment() throws Exception {
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        mockMvc.perform(post("/api/appointment").param("view", "created").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost/api/appointments/0"))
+                .andExpect(jsonPath("$.room.roomName").value("Dermatology"))
+                .andExpect(jsonPath("$.startsAt").value("19:30 24/04/2023"));
+
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldOfferFreeSlotsOfARoomCreatedThroughTheLegacyEndpoint() throws Exception {
+        appointmentIndex.removeAllRooms();
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 18, 0);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Radiology"),
+                startsAt, startsAt.plusHours(1));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        assertThat(appointmentIndex.freeSlots(startsAt.toLocalDate(), startsAt.toLocalDate()))
+                .filteredOn(slot -> "Radiology".equals(slot.getRoomName()))
+                .hasSize(23)
+                .extracting("startsAt").doesNotContain(startsAt);
+    }
+
+    @Test
+    void shouldCreateAppointmentByReference() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        AppointmentRequest request = new AppointmentRequest(1L, 2L, "Dermatology", startsAt, startsAt.plusHours(1));
+
+        Appointment saved = new Appointment(null, null, new Room("Dermatology"), startsAt, startsAt.plusHours(1));
+        saved.setId(5);
+        when(appointmentWriter.insertByReference(any(AppointmentRequest.class))).thenReturn(saved);
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "http://localhost/api/appointments/5"))
+                .andExpect(jsonPath("$.id").value(5))
+                .andExpect(jsonPath("$.patientId").value(1))
+                .andExpect(jsonPath("$.doctorId").value(2))
+                .andExpect(jsonPath("$.startsAt").value("19:30 24/04/2023"));
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotAcceptable());
+
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+    }
+
+    @Test
+    void shouldAssignAFreeRoomWhenNoneIsRequested() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        appointmentIndex.addRoom("Dermatology");
+        appointmentIndex.addRoom("Oncology");
+        appointmentIndex.add(new AppointmentSlot(7, "Dermatology", startsAt, startsAt.plusHours(1)));
+
+        Appointment saved = new Appointment(null, null, new Room("Oncology"), startsAt, startsAt.plusHours(1));
+        saved.setId(8);
+        when(appointmentWriter.insertByReference(argThat(r -> "Oncology".equals(r.getRoomName())))).thenReturn(saved);
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new AppointmentRequest(1L, 2L, null, startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(8))
+                .andExpect(jsonPath("$.roomName").value("Oncology"));
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new AppointmentRequest(3L, 4L, null, startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldRejectUnknownOrMissingReferences() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        when(appointmentWriter.insertByReference(any(AppointmentRequest.class)))
+                .thenThrow(new DataIntegrityViolationException("fk_appointment_patient"));
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new AppointmentRequest(99L, 2L, "Dermatology", startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new AppointmentRequest(null, 2L, "Dermatology", startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isBadRequest());
+
+        assertThat(appointmentIndex.isRoomAvailable("Dermatology", startsAt, startsAt.plusHours(1))).isTrue();
+    }
+
     @Test
     void shouldNotCreateAppointment() throws Exception {
         
@@ -158,6 +309,89 @@ class AppointmentControllerUnitTest{
 
     }
     
+    @Test
+    void shouldReportOutcomeOfEveryBatchItem() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        List<Appointment> batch = Arrays.asList(
+                new Appointment(patient, doctor, room, startsAt, finishesAt),
+                new Appointment(patient2, doctor, room, startsAt.plusMinutes(30), finishesAt.plusMinutes(30)),
+                new Appointment(patient2, doctor, room, startsAt, startsAt),
+                new Appointment(patient2, doctor, room, finishesAt, finishesAt.plusHours(1)));
+
+        when(appointmentRepository.saveAll(any())).thenAnswer(invocation -> {
+            long id = 1;
+            for (Appointment saved : invocation.<Iterable<Appointment>>getArgument(0)) {
+                saved.setId(id++);
+            }
+            return invocation.getArgument(0);
+        });
+
+        mockMvc.perform(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].outcome").value("ACCEPTED"))
+                .andExpect(jsonPath("$[1].outcome").value("ROOM_TAKEN"))
+                .andExpect(jsonPath("$[2].outcome").value("BAD_TIME"))
+                .andExpect(jsonPath("$[3].outcome").value("ACCEPTED"))
+                .andExpect(jsonPath("$[3].id").value(2));
+
+        verify(appointmentRepository).saveAll(argThat(saved -> ((List<?>) saved).size() == 2));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch.get(0))))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void shouldProposeAndCommitARoomSchedule() throws Exception {
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        appointmentIndex.addRoom("Dermatology");
+        appointmentIndex.addRoom("Oncology");
+        List<AppointmentRequest> requests = Arrays.asList(
+                new AppointmentRequest(1L, 11L, null, nine, nine.plusHours(1)),
+                new AppointmentRequest(2L, 12L, null, nine, nine.plusHours(1)),
+                new AppointmentRequest(3L, 13L, null, nine, nine.plusHours(1)),
+                new AppointmentRequest(4L, 14L, null, nine.plusHours(1), nine.plusHours(2)));
+
+        mockMvc.perform(post("/api/appointments/schedule").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[1].roomName").value("Oncology"))
+                .andExpect(jsonPath("$[2].outcome").value("NO_ROOM_AVAILABLE"))
+                .andExpect(jsonPath("$[3].roomName").value("Dermatology"));
+
+        verify(appointmentWriter, never()).insertAllByReference(any());
+
+        when(appointmentWriter.insertAllByReference(any())).thenAnswer(invocation -> {
+            List<Appointment> saved = new ArrayList<>();
+            for (AppointmentRequest request : invocation.<List<AppointmentRequest>>getArgument(0)) {
+                Appointment appointment = new Appointment(null, null, new Room(request.getRoomName()),
+                        request.getStartsAt(), request.getFinishesAt());
+                appointment.setId(100 + saved.size());
+                saved.add(appointment);
+            }
+            return saved;
+        });
+
+        mockMvc.perform(post("/api/appointments/schedule").param("commit", "true").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(100))
+                .andExpect(jsonPath("$[3].id").value(102));
+
+        assertThat(appointmentIndex.freeRooms(nine, nine.plusHours(1))).isEmpty();
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
         List<Appointment> appointments = new ArrayList<Appointment>();
@@ -196,6 +430,81 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldGetAppointmentsPageWithNextCursor() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+        Appointment appointment2 = new Appointment(patient, doctor, room, startsAt.plusHours(1), startsAt.plusHours(2));
+        appointment.setId(1);
+        appointment2.setId(2);
+
+        when(appointmentRepository.findByStartsAtNotNullOrderByStartsAtAscIdAsc(PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(appointment, appointment2), PageRequest.of(0, 2), true));
+
+        String cursor = mockMvc.perform(get("/api/appointments").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        when(appointmentRepository.findPageAfter(startsAt.plusHours(1), 2, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(Collections.<Appointment>emptyList(), PageRequest.of(0, 2), false));
+
+        mockMvc.perform(get("/api/appointments").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void shouldGetAppointmentSummariesWithFlatIds() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        AppointmentSummary summary = new AppointmentSummary(3, 1L, 2L, "Dermatology", startsAt, startsAt.plusHours(1));
+
+        when(appointmentRepository.findAllSummaries()).thenReturn(Collections.singletonList(summary));
+
+        mockMvc.perform(get("/api/appointments").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[0].patientId").value(1))
+                .andExpect(jsonPath("$[0].doctorId").value(2))
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].patient").doesNotExist());
+
+        when(appointmentRepository.findFirstSummaries(PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(summary), PageRequest.of(0, 1), true));
+
+        mockMvc.perform(get("/api/appointments").param("view", "summary").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].doctorId").value(2))
+                .andExpect(header().exists("X-Next-Cursor"));
+
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldRejectMalformedAppointmentsCursor() throws Exception{
+        mockMvc.perform(get("/api/appointments").param("limit", "2").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/appointments").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldExportAppointmentsAsNdjson() throws Exception{
+        mockMvc.perform(get("/api/appointments/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"));
+
+        verify(appointmentExporter).export(any());
+        verify(appointmentRepository, never()).findAll();
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -272,7 +581,26 @@ class AppointmentControllerUnitTest{
     void shouldDeleteAllAppointments() throws Exception{
         mockMvc.perform(delete("/api/appointments"))
                 .andExpect(status().isOk());
-                
+
+        verify(appointmentRepository).deleteAllInBatch();
+        verify(appointmentRepository, never()).deleteAll();
     }
-}
 
+    @Test
+    void shouldPurgeAppointmentsFinishedBeforeADate() throws Exception{
+        PurgeReport report = new PurgeReport();
+        report.chunk(1000);
+        report.chunk(20);
+        when(appointmentPurger.purgeFinishedBefore(LocalDateTime.of(2023, 1, 1, 0, 0))).thenReturn(report);
+
+        mockMvc.perform(delete("/api/appointments").param("before", "2023-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1020))
+                .andExpect(jsonPath("$.chunks").value(2));
+
+        mockMvc.perform(delete("/api/appointments").param("before", "01/01/2023"))
+                .andExpect(status().isBadRequest());
+
+        verify(appointmentRepository, never()).deleteAllInBatch();
+    }
+}
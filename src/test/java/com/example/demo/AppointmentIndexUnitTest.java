@@ -0,0 +1,149 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.dto.RoomSummary;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+
+class AppointmentIndexUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    private AppointmentRepository appointmentRepository;
+
+    private RoomRepository roomRepository;
+
+    private AppointmentIndex index;
+
+    @BeforeEach
+    void setup() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        roomRepository = mock(RoomRepository.class);
+        index = new AppointmentIndex(appointmentRepository, roomRepository);
+    }
+
+    @Test
+    void shouldLoadExistingAppointmentsOnReload() {
+        when(appointmentRepository.findAllSlots()).thenReturn(Arrays.asList(
+                new AppointmentSlot(1, "Dermatology", NINE, NINE.plusHours(1)),
+                new AppointmentSlot(2, "Oncology", NINE.plusHours(2), NINE.plusHours(3))));
+
+        index.reload();
+
+        assertThat(index.isRoomAvailable("Dermatology", NINE, NINE.plusHours(1))).isFalse();
+        assertThat(index.isRoomAvailable("Oncology", NINE, NINE.plusHours(1))).isTrue();
+        assertThat(index.isRoomAvailable("Oncology", NINE.plusMinutes(150), NINE.plusMinutes(210))).isFalse();
+    }
+
+    @Test
+    void shouldFollowAppointmentOverlapSemantics() {
+        index.add(appointment(1, "Dermatology", NINE, NINE.plusHours(1)));
+
+        assertThat(index.isRoomAvailable("Dermatology", NINE.minusMinutes(30), NINE.plusMinutes(30))).isFalse();
+        assertThat(index.isRoomAvailable("Dermatology", NINE.plusMinutes(30), NINE.plusMinutes(90))).isFalse();
+        assertThat(index.isRoomAvailable("Dermatology", NINE.minusHours(1), NINE)).isTrue();
+        assertThat(index.isRoomAvailable("Dermatology", NINE.plusHours(1), NINE.plusHours(2))).isTrue();
+        assertThat(index.isRoomAvailable("Emergency", NINE, NINE.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void shouldFreeTheSlotWhenAnAppointmentIsRemoved() {
+        index.add(appointment(1, "Dermatology", NINE, NINE.plusHours(1)));
+        index.add(appointment(2, "Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        index.remove(1);
+
+        assertThat(index.isRoomAvailable("Dermatology", NINE, NINE.plusHours(1))).isTrue();
+        assertThat(index.isRoomAvailable("Dermatology", NINE.plusHours(1), NINE.plusHours(2))).isFalse();
+
+        index.clear();
+
+        assertThat(index.isRoomAvailable("Dermatology", NINE.plusHours(1), NINE.plusHours(2))).isTrue();
+    }
+
+    @Test
+    void shouldTrackDoctorAndPatientSchedulesAcrossRooms() {
+        index.add(new AppointmentSlot(1, "Dermatology", NINE, NINE.plusHours(1), 7L, 11L));
+        index.add(new AppointmentSlot(2, null, NINE.plusHours(2), NINE.plusHours(3), 8L, 12L));
+
+        assertThat(index.isDoctorAvailable(7, NINE.plusMinutes(30), NINE.plusMinutes(90))).isFalse();
+        assertThat(index.isPatientAvailable(11, NINE, NINE.plusHours(1))).isFalse();
+        assertThat(index.isDoctorAvailable(8, NINE.plusHours(2), NINE.plusHours(3))).isFalse();
+        assertThat(index.isDoctorAvailable(7, NINE.plusHours(1), NINE.plusHours(2))).isTrue();
+        assertThat(index.isPatientAvailable(12, NINE, NINE.plusHours(1))).isTrue();
+
+        index.remove(1);
+
+        assertThat(index.isDoctorAvailable(7, NINE, NINE.plusHours(1))).isTrue();
+        assertThat(index.isPatientAvailable(11, NINE, NINE.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void shouldListFreeHoursFromTheOccupancyCalendar() {
+        when(appointmentRepository.findAllSlots()).thenReturn(Arrays.asList(
+                new AppointmentSlot(1, "Dermatology", NINE, NINE.plusHours(1)),
+                new AppointmentSlot(2, "Dermatology", NINE.plusMinutes(90), NINE.plusMinutes(150)),
+                new AppointmentSlot(3, "Dermatology", NINE.withHour(23).plusMinutes(30), NINE.plusDays(1).withHour(0).plusMinutes(30))));
+        index.reload();
+        LocalDate day = NINE.toLocalDate();
+
+        assertThat(index.freeSlots("Dermatology", day, day)).extracting("startsAt")
+                .hasSize(20)
+                .doesNotContain(NINE, NINE.plusHours(1), NINE.plusHours(2), NINE.withHour(23));
+        assertThat(index.freeSlots("Dermatology", day.plusDays(1), day.plusDays(1))).extracting("startsAt")
+                .hasSize(23)
+                .doesNotContain(day.plusDays(1).atStartOfDay());
+
+        index.remove(2);
+
+        assertThat(index.freeSlots("Dermatology", day, day)).extracting("startsAt")
+                .hasSize(22)
+                .contains(NINE.plusHours(1), NINE.plusHours(2));
+    }
+
+    @Test
+    void shouldListFreeHoursOfEveryKnownRoom() {
+        when(roomRepository.findAllSummaries()).thenReturn(Arrays.asList(
+                new RoomSummary("Dermatology"), new RoomSummary("Oncology")));
+        when(appointmentRepository.findAllSlots()).thenReturn(Collections.singletonList(
+                new AppointmentSlot(1, "Oncology", NINE, NINE.plusHours(1))));
+        index.reload();
+        LocalDate day = NINE.toLocalDate();
+
+        List<FreeSlot> free = index.freeSlots(day, day.plusDays(6));
+
+        assertThat(free).hasSize(2 * 7 * 24 - 1);
+        // Oncology is busy at nine, so Dermatology stands alone between the 08:00 and 10:00 pairs
+        assertThat(free.subList(16, 21)).extracting("roomName")
+                .containsExactly("Dermatology", "Oncology", "Dermatology", "Dermatology", "Oncology");
+        assertThat(free.get(18).getStartsAt()).isEqualTo(NINE);
+        assertThat(free.get(19).getStartsAt()).isEqualTo(NINE.plusHours(1));
+        assertThat(index.hasRoom("Oncology")).isTrue();
+        assertThat(index.hasRoom("Emergency")).isFalse();
+    }
+
+    private Appointment appointment(long id, String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Appointment appointment = new Appointment(patient, doctor, new Room(roomName), startsAt, finishesAt);
+        appointment.setId(id);
+        return appointment;
+    }
+
+}
@@ -1,19 +1,37 @@
 package com.example.demo;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.PurgeReport;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentExporter;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentPurger;
+import com.example.demo.services.AppointmentWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 
 @DataJpaTest
@@ -258,4 +276,299 @@ class AppointmentJpaUnitTest {
         assertThat(appointments).isEmpty();
     }
     
+    @Test
+    void should_list_appointment_slots(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = startsAt.plusHours(1);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        entityManager.persist(appointment);
+
+        Iterable<AppointmentSlot> slots = repoAppointments.findAllSlots();
+        assertThat(slots).hasSize(1).first()
+            .hasFieldOrPropertyWithValue("id", appointment.getId())
+            .hasFieldOrPropertyWithValue("roomName", "Dermatology")
+            .hasFieldOrPropertyWithValue("startsAt", startsAt)
+            .hasFieldOrPropertyWithValue("finishesAt", finishesAt)
+            .hasFieldOrPropertyWithValue("doctorId", doctor.getId())
+            .hasFieldOrPropertyWithValue("patientId", patient.getId());
+    }
+
+    @Test
+    void should_find_overlapping_appointments_of_a_doctor_or_patient(){
+        Patient patient1 = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient1);
+        entityManager.persist(patient2);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+        entityManager.persist(new Appointment(patient1, doctor, room, nine, nine.plusHours(1)));
+
+        assertThat(repoAppointments.existsByDoctorIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                doctor.getId(), nine.minusMinutes(30), nine.plusMinutes(90), nine.plusMinutes(30))).isTrue();
+        assertThat(repoAppointments.existsByDoctorIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                doctor.getId(), nine, nine.plusHours(2), nine.plusHours(1))).isFalse();
+        assertThat(repoAppointments.existsByPatientIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                patient1.getId(), nine.minusHours(1), nine.plusHours(1), nine)).isTrue();
+        assertThat(repoAppointments.existsByPatientIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                patient2.getId(), nine.minusHours(1), nine.plusHours(1), nine)).isFalse();
+        // Only appointments starting after the lower bound are looked at
+        assertThat(repoAppointments.existsByPatientIdAndStartsAtGreaterThanAndStartsAtLessThanAndFinishesAtGreaterThan(
+                patient1.getId(), nine, nine.plusHours(1), nine)).isFalse();
+    }
+
+    @Test
+    void should_find_only_overlapping_slots_of_the_room(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment appointment1 = new Appointment(patient, doctor, room1, nine, nine.plusHours(1));
+        Appointment appointment2 = new Appointment(patient, doctor, room1, nine.plusHours(1), nine.plusHours(2));
+        Appointment appointment3 = new Appointment(patient, doctor, room2, nine, nine.plusHours(1));
+
+        entityManager.persist(appointment1);
+        entityManager.persist(appointment2);
+        entityManager.persist(appointment3);
+
+        assertThat(repoAppointments.findOverlappingSlots("Dermatology", nine.minusMinutes(30), nine.plusMinutes(30),
+                nine.plusMinutes(90)))
+            .extracting("id").containsExactlyInAnyOrder(appointment1.getId(), appointment2.getId());
+        assertThat(repoAppointments.findOverlappingSlots("Dermatology", nine.plusHours(1), nine.plusHours(2),
+                nine.plusHours(3)))
+            .isEmpty();
+        assertThat(repoAppointments.findOverlappingSlots("Oncology", nine.minusHours(2), nine.minusHours(1), nine))
+            .isEmpty();
+        // Only appointments starting after the lower bound are looked at
+        assertThat(repoAppointments.findOverlappingSlots("Dermatology", nine, nine.plusMinutes(30),
+                nine.plusMinutes(90)))
+            .extracting("id").containsExactly(appointment2.getId());
+    }
+
+    @Test
+    void should_page_appointments_by_start_time(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment late = new Appointment(patient, doctor, room1, nine.plusHours(2), nine.plusHours(3));
+        Appointment early = new Appointment(patient, doctor, room1, nine, nine.plusHours(1));
+        Appointment sameStart = new Appointment(patient, doctor, room2, nine, nine.plusHours(1));
+
+        entityManager.persist(late);
+        entityManager.persist(early);
+        entityManager.persist(sameStart);
+
+        Slice<Appointment> first = repoAppointments.findByStartsAtNotNullOrderByStartsAtAscIdAsc(PageRequest.of(0, 2));
+        assertThat(first.getContent()).containsExactly(early, sameStart);
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<Appointment> second = repoAppointments.findPageAfter(sameStart.getStartsAt(), sameStart.getId(), PageRequest.of(0, 2));
+        assertThat(second.getContent()).containsExactly(late);
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void should_list_appointment_summaries_without_loading_entities(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+        Appointment late = entityManager.persist(new Appointment(patient, doctor, room, nine.plusHours(1), nine.plusHours(2)));
+        Appointment early = entityManager.persist(new Appointment(patient, doctor, room, nine, nine.plusHours(1)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(repoAppointments.findAllSummaries()).hasSize(2).first()
+            .hasFieldOrPropertyWithValue("id", late.getId())
+            .hasFieldOrPropertyWithValue("patientId", patient.getId())
+            .hasFieldOrPropertyWithValue("doctorId", doctor.getId())
+            .hasFieldOrPropertyWithValue("roomName", "Dermatology");
+
+        Slice<AppointmentSummary> first = repoAppointments.findFirstSummaries(PageRequest.of(0, 1));
+        assertThat(first.getContent()).extracting("id").containsExactly(early.getId());
+        assertThat(first.hasNext()).isTrue();
+        assertThat(repoAppointments.findSummariesAfter(nine, early.getId(), PageRequest.of(0, 1)).getContent())
+            .extracting("id").containsExactly(late.getId());
+
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void should_export_appointments_as_ndjson() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+        entityManager.persist(new Appointment(patient, doctor, room, nine, nine.plusHours(1)));
+        entityManager.persist(new Appointment(patient, doctor, room, nine.plusHours(1), nine.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        AppointmentExporter exporter = new AppointmentExporter(repoAppointments,
+                new ObjectMapper().registerModule(new JavaTimeModule()), entityManager.getEntityManager());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.export(out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertThat(rows).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"startsAt\":\"09:00 24/04/2023\"", "\"roomName\":\"Dermatology\"");
+        assertThat(lines[1]).contains("\"startsAt\":\"10:00 24/04/2023\"");
+    }
+
+    @Test
+    void should_load_a_page_of_appointments_with_their_participants_in_one_statement(){
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya@email.com"));
+            Doctor doctor = entityManager.persist(new Doctor("Perla", "Amalia" + i, 24, "p.amalia@hospital.accwe"));
+            Room room = entityManager.persist(new Room("Room " + i));
+            entityManager.persist(new Appointment(patient, doctor, room, nine.plusHours(i), nine.plusHours(i + 1)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        SessionFactory sessionFactory = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            assertThat(repoAppointments.findAll()).hasSize(5)
+                .allSatisfy(a -> assertThat(a.getDoctor().getLastName()).startsWith("Amalia"));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            entityManager.clear();
+            statistics.clear();
+            Slice<Appointment> page = repoAppointments.findByStartsAtNotNullOrderByStartsAtAscIdAsc(PageRequest.of(0, 3));
+            Appointment last = page.getContent().get(2);
+            repoAppointments.findPageAfter(last.getStartsAt(), last.getId(), PageRequest.of(0, 3));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+            entityManager.clear();
+            statistics.clear();
+            assertThat(repoAppointments.findById(last.getId())).get()
+                .extracting(a -> a.getPatient().getLastName()).isEqualTo("Olaya2");
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void should_insert_an_appointment_by_reference_without_loading_its_participants(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        entityManager.persist(new Room("Dermatology"));
+        entityManager.flush();
+        entityManager.clear();
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        AppointmentWriter writer = new AppointmentWriter(entityManager.getEntityManager(), repoAppointments);
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            Appointment appointment = writer.insertByReference(
+                    new AppointmentRequest(patient.getId(), doctor.getId(), "Dermatology", nine, nine.plusHours(1)));
+
+            assertThat(statistics.getEntityLoadCount()).isZero();
+            assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+            assertThat(statistics.getEntityUpdateCount()).isZero();
+            assertThat(appointment.getRoom().getRoomName()).isEqualTo("Dermatology");
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        assertThatThrownBy(() -> writer.insertByReference(
+                new AppointmentRequest(patient.getId(), doctor.getId(), "Oncology", nine, nine.plusHours(1))))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void should_purge_finished_appointments_in_chunks(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(new Appointment(patient, doctor, room, nine.plusDays(i), nine.plusDays(i).plusHours(1)));
+        }
+        entityManager.flush();
+
+        AppointmentIndex index = new AppointmentIndex(repoAppointments, repoRooms);
+        index.reload();
+        AppointmentPurger purger = new AppointmentPurger(repoAppointments, index, 2);
+
+        PurgeReport report = purger.purgeFinishedBefore(nine.plusDays(3));
+
+        assertThat(report.getDeleted()).isEqualTo(3);
+        assertThat(report.getChunks()).isEqualTo(2);
+        assertThat(repoAppointments.findAllSummaries()).extracting("startsAt")
+            .containsExactly(nine.plusDays(3), nine.plusDays(4));
+        assertThat(index.isRoomAvailable("Dermatology", nine, nine.plusHours(1))).isTrue();
+        assertThat(index.isRoomAvailable("Dermatology", nine.plusDays(3), nine.plusDays(3).plusHours(1))).isFalse();
+        assertThat(repoDoctors.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_reject_two_appointments_starting_together_in_the_same_room(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        repoAppointments.saveAndFlush(new Appointment(patient, doctor, room, nine, nine.plusHours(1)));
+
+        assertThatThrownBy(() -> repoAppointments.saveAndFlush(new Appointment(patient, doctor, room, nine, nine.plusHours(1))))
+            .isInstanceOf(DataIntegrityViolationException.class)
+            .hasMessageContaining(Appointment.UNIQUE_ROOM_START.toUpperCase());
+    }
+
 }
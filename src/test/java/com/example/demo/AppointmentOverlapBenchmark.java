@@ -0,0 +1,91 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.EpochMinutes;
+import com.example.demo.entities.Room;
+import com.example.demo.services.AppointmentIndex;
+
+/**
+ * One appointment against 1024 others (8 rooms): the string/LocalDateTime
+ * comparison the entity used to do, the entity method on epoch minutes, and the
+ * room check of the {@link AppointmentIndex} that bookings actually go through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppointmentOverlapBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private Appointment probe;
+
+    private Appointment[] others;
+
+    private AppointmentIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDateTime nine = LocalDateTime.of(2023, 5, 1, 9, 0);
+        probe = new Appointment(null, null, new Room("Room 0"), nine, nine.plusHours(1));
+        others = new Appointment[SIZE];
+        index = new AppointmentIndex(null, null);
+        for (int i = 0; i < SIZE; i++) {
+            LocalDateTime startsAt = nine.plusMinutes(30L * (random.nextInt(16) - 8));
+            // A fresh String per appointment, as entities loaded from the database have
+            others[i] = new Appointment(null, null, new Room(new String("Room " + random.nextInt(8))),
+                    startsAt, startsAt.plusHours(1));
+            index.add(new AppointmentSlot(i + 1, others[i].getRoom().getRoomName(), startsAt, startsAt.plusHours(1)));
+        }
+    }
+
+    @Benchmark
+    public int dateTimeAndRoomName() {
+        int overlapping = 0;
+        for (Appointment other : others) {
+            if (other.getRoom().getRoomName().equals(probe.getRoom().getRoomName())
+                    && Appointment.overlaps(probe.getStartsAt(), probe.getFinishesAt(),
+                                            other.getStartsAt(), other.getFinishesAt())) {
+                overlapping++;
+            }
+        }
+        return overlapping;
+    }
+
+    @Benchmark
+    public int entityPrimitive() {
+        int overlapping = 0;
+        for (Appointment other : others) {
+            if (probe.overlaps(other)) {
+                overlapping++;
+            }
+        }
+        return overlapping;
+    }
+
+    @Benchmark
+    public boolean roomIndex() {
+        return index.isRoomAvailable(probe.getRoom().getRoomName(), EpochMinutes.of(probe.getStartsAt()),
+                EpochMinutes.of(probe.getFinishesAt()));
+    }
+
+}
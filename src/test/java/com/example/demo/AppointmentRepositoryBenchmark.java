@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.AppointmentWriter;
+
+/**
+ * Repository round-trips against the in-memory H2 database of the test
+ * configuration, with a {@link HospitalDataset} of 10k or 1M appointments in the table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AppointmentRepositoryBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+
+    @Param({"10000", "1000000"})
+    private int appointments;
+
+    private ConfigurableApplicationContext context;
+
+    private AppointmentRepository appointmentRepository;
+
+    private AppointmentWriter appointmentWriter;
+
+    private HospitalDataset.Loaded dataset;
+
+    private long minutes;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(TechhubApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+                .run();
+        appointmentRepository = context.getBean(AppointmentRepository.class);
+        appointmentWriter = context.getBean(AppointmentWriter.class);
+
+        dataset = new HospitalDataset(42, appointments / 10, 120, 100, appointments, FIRST_DAY)
+                .load(context.getBean(DataSource.class), context.getBean(EntityManagerFactory.class));
+        minutes = Duration.between(FIRST_DAY.atStartOfDay(), dataset.getLastFinish()).toMinutes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Appointment> findById() {
+        return appointmentRepository.findById(dataset.getAppointmentId(next++ % appointments));
+    }
+
+    @Benchmark
+    public Slice<AppointmentSummary> summaryPage() {
+        LocalDateTime after = FIRST_DAY.atStartOfDay().plusMinutes((next++ * 7919L) % minutes);
+        return appointmentRepository.findSummariesAfter(after, 0, PageRequest.of(0, 50));
+    }
+
+    @Benchmark
+    public long insertAndDelete() {
+        // The day before the dataset starts is always free
+        LocalDateTime startsAt = FIRST_DAY.atStartOfDay().minusHours(1);
+        Appointment saved = appointmentWriter.insertByReference(new AppointmentRequest(dataset.getPatientId(0),
+                dataset.getDoctorId(0), dataset.getRoomName(0), startsAt, startsAt.plusHours(1)));
+        // Bulk delete: deleteById would cascade the removal to the doctor, patient and room
+        appointmentRepository.deleteAllByIdInBatch(Collections.singletonList(saved.getId()));
+        return saved.getId();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writing appointment lists to JSON with the application's ObjectMapper
+ * (JacksonConfiguration date formats), as full entities and as summaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AppointmentSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<Appointment> appointments;
+
+    private List<AppointmentSummary> summaries;
+
+    @Setup
+    public void setup() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        objectMapper = builder.build();
+
+        LocalDateTime nine = LocalDateTime.of(2023, 5, 1, 9, 0);
+        appointments = new ArrayList<>(size);
+        summaries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+            patient.setId(i % 500 + 1);
+            Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+            doctor.setId(i % 50 + 1);
+            Room room = new Room("Room " + i % 20);
+            LocalDateTime startsAt = nine.plusHours(i / 20);
+            Appointment appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+            appointment.setId(i + 1);
+            appointments.add(appointment);
+            summaries.add(new AppointmentSummary(i + 1, patient.getId(), doctor.getId(), room.getRoomName(),
+                    startsAt, startsAt.plusHours(1)));
+        }
+    }
+
+    @Benchmark
+    public byte[] entities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(appointments);
+    }
+
+    @Benchmark
+    public byte[] summaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingOutcome;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.StripedBookingLocks;
+
+/**
+ * The conflict check POST /api/appointment runs before saving (room, doctor and
+ * patient against the in-memory index), with 1k, 100k and 1M existing
+ * appointments spread over 50 rooms, 200 doctors and 5000 patients. Half of the
+ * probes hit a booked hour.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BookingConflictBenchmark {
+
+    private static final int ROOMS = 50;
+
+    private static final LocalDateTime FIRST_HOUR = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @Param({"1000", "100000", "1000000"})
+    int existing;
+
+    private BookingService bookingService;
+
+    private Appointment[] probes;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        int hours = (existing + ROOMS - 1) / ROOMS;
+        LocalDateTime[] times = new LocalDateTime[hours + 2];
+        for (int h = 0; h < times.length; h++) {
+            times[h] = FIRST_HOUR.plusHours(h);
+        }
+        List<AppointmentSlot> slots = new ArrayList<>(existing);
+        for (int i = 0; i < existing; i++) {
+            int hour = i / ROOMS;
+            slots.add(new AppointmentSlot(i + 1, "Room " + (i % ROOMS), times[hour], times[hour + 1],
+                    1L + i % 200, 1L + i % 5000));
+        }
+
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        when(appointmentRepository.findAllSlots()).thenReturn(slots);
+        when(roomRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+        AppointmentIndex index = new AppointmentIndex(appointmentRepository, roomRepository);
+        index.reload();
+        bookingService = new BookingService(appointmentRepository, index, mock(AppointmentWriter.class),
+                new StripedBookingLocks(64), "index", "", new SimpleMeterRegistry());
+
+        Random random = new Random(42);
+        probes = new Appointment[1024];
+        for (int i = 0; i < probes.length; i++) {
+            // Even probes ask for a booked hour, odd ones for a free hour after the last booking
+            int hour = random.nextInt(hours);
+            LocalDateTime startsAt = i % 2 == 0 ? times[hour] : times[hours].plusMinutes(30);
+            Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+            doctor.setId(100_000 + i);
+            Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+            patient.setId(100_000 + i);
+            probes[i] = new Appointment(patient, doctor, new Room("Room " + random.nextInt(ROOMS)),
+                    startsAt, startsAt.plusHours(1));
+        }
+    }
+
+    @Benchmark
+    public BookingOutcome check() {
+        Appointment probe = probes[next++ & (probes.length - 1)];
+        return bookingService.check(probe);
+    }
+
+}
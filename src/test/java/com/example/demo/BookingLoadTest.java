@@ -0,0 +1,375 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Open-loop HTTP load test: boots the application on a random port with the
+ * H2 "integrationtest" profile, seeds a dataset and fires a weighted mix of
+ * requests at a fixed rate. Latency is measured from when each request was
+ * due, not when it was sent, so a slow server cannot hide its queueing delay.
+ * <p>
+ * Tagged "load" and skipped by the normal build; run it with
+ * {@code mvn -Pload test} and tune it with system properties:
+ * {@code load.rate} (requests per second, default 200), {@code load.seconds} (20),
+ * {@code load.warmup-seconds} (5, driven the same way but not reported),
+ * {@code load.mix} ({@code create:30,list:5,get:55,delete:10}),
+ * {@code load.seed.appointments} (1000), {@code load.dataset.appointments} (0, extra
+ * {@link HospitalDataset} rows loaded first to give the tables a production-like size),
+ * {@code load.threads} (32), {@code load.max-p99-ms} (fails the run when exceeded).
+ * The report is printed and written to {@code target/load-report.json}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("integrationtest")
+class BookingLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingLoadTest.class);
+
+    private static final LocalDateTime FIRST_HOUR = LocalDateTime.of(2023, 1, 2, 8, 0);
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentWriter appointmentWriter;
+
+    @Autowired
+    private AppointmentIndex appointmentIndex;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LiveIds ids = new LiveIds();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Test
+    void shouldSustainTheConfiguredRequestMix() throws Exception {
+        int rate = Integer.getInteger("load.rate", 200);
+        int seconds = Integer.getInteger("load.seconds", 20);
+        int warmup = Integer.getInteger("load.warmup-seconds", 5);
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", "create:30,list:5,get:55,delete:10"));
+
+        int background = Integer.getInteger("load.dataset.appointments", 0);
+        if (background > 0) {
+            new HospitalDataset(Long.getLong("load.dataset.seed", 42), Math.max(background / 10, 1), 120, 100,
+                    background, FIRST_HOUR.toLocalDate().minusYears(5)).load(dataSource, entityManagerFactory);
+        }
+        seed(Integer.getInteger("load.seed.appointments", 1000));
+
+        String[] wheel = wheelOf(mix);
+        drive(wheel, rate, warmup, statsOf(mix));
+        Map<String, EndpointStats> stats = statsOf(mix);
+        double elapsed = drive(wheel, rate, seconds, stats);
+
+        Map<String, Object> report = report(stats, elapsed, rate);
+        log.info("Load report:\n{}", objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File("target/load-report.json"), report);
+
+        assertThat(stats.values().stream().mapToLong(EndpointStats::count).sum()).isEqualTo((long) rate * seconds);
+        String maxP99 = System.getProperty("load.max-p99-ms");
+        if (maxP99 != null) {
+            for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+                assertThat(entry.getValue().percentileMillis(0.99)).as(entry.getKey() + " p99")
+                        .isLessThanOrEqualTo(Double.parseDouble(maxP99));
+            }
+        }
+    }
+
+    /**
+     * Issues {@code rate * seconds} requests on a fixed schedule, whether or not earlier ones have
+     * answered, and returns the seconds it took until the last one completed.
+     */
+    private double drive(String[] wheel, int rate, int seconds, Map<String, EndpointStats> stats)
+            throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService workers = Executors.newFixedThreadPool(Integer.getInteger("load.threads", 32));
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+        AtomicLong issued = new AtomicLong();
+
+        ticker.scheduleAtFixedRate(() -> {
+            long n = issued.getAndIncrement();
+            if (n >= total) {
+                return;
+            }
+            long due = start + n * periodNanos;
+            String operation = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+            workers.execute(() -> {
+                int status = call(operation);
+                stats.get(operation).record(System.nanoTime() - due, status);
+            });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        while (issued.get() < total) {
+            Thread.sleep(100);
+        }
+        ticker.shutdownNow();
+        workers.shutdown();
+        assertThat(workers.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * Every appointment gets a patient, doctor and room of its own: {@code Appointment} cascades
+     * everything to them, so deleting an appointment that shares one fails on its foreign key.
+     */
+    private void seed(int appointments) {
+        List<Patient> patients = new ArrayList<>(appointments);
+        List<Doctor> doctors = new ArrayList<>(appointments);
+        List<Room> rooms = new ArrayList<>(appointments);
+        for (int i = 0; i < appointments; i++) {
+            long n = sequence.getAndIncrement();
+            patients.add(patientOf(n));
+            doctors.add(doctorOf(n));
+            rooms.add(new Room(roomName(n)));
+        }
+        patientRepository.saveAll(patients);
+        doctorRepository.saveAll(doctors);
+        roomRepository.saveAll(rooms);
+
+        List<AppointmentRequest> requests = new ArrayList<>(appointments);
+        for (int i = 0; i < appointments; i++) {
+            LocalDateTime startsAt = slotStart(i);
+            requests.add(new AppointmentRequest(patients.get(i).getId(), doctors.get(i).getId(),
+                    rooms.get(i).getRoomName(), startsAt, startsAt.plusHours(1)));
+        }
+        for (Appointment appointment : appointmentWriter.insertAllByReference(requests)) {
+            ids.add(appointment.getId());
+        }
+        appointmentIndex.reload();
+    }
+
+    private int call(String operation) {
+        try {
+            switch (operation) {
+                case "create":
+                    return create();
+                case "list":
+                    return restTemplate.getForEntity("/api/appointments", String.class).getStatusCodeValue();
+                case "get":
+                    return restTemplate.getForEntity("/api/appointments/{id}", String.class, ids.any())
+                            .getStatusCodeValue();
+                case "delete":
+                    long id = ids.claim();
+                    return restTemplate.exchange("/api/appointments/{id}", HttpMethod.DELETE, null, String.class, id)
+                            .getStatusCodeValue();
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation);
+            }
+        } catch (RuntimeException | IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Books the legacy way, with new participants and a new room so that every booking is accepted,
+     * and makes the new appointment available to later gets and deletes.
+     */
+    private int create() throws IOException {
+        long n = sequence.getAndIncrement();
+        LocalDateTime startsAt = slotStart(n);
+        Appointment appointment = new Appointment(patientOf(n), doctorOf(n), new Room(roomName(n)),
+                startsAt, startsAt.plusHours(1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/appointment?view=created",
+                new HttpEntity<>(objectMapper.writeValueAsString(appointment), headers), String.class);
+        URI location = response.getHeaders().getLocation();
+        if (location != null) {
+            String path = location.getPath();
+            ids.add(Long.parseLong(path.substring(path.lastIndexOf('/') + 1)));
+        }
+        return response.getStatusCodeValue();
+    }
+
+    private static LocalDateTime slotStart(long n) {
+        return FIRST_HOUR.plusHours(n % (24 * 365));
+    }
+
+    private static Patient patientOf(long n) {
+        return new Patient("Jose Luis", "Olaya", 37, "j.olaya" + n + "@email.com");
+    }
+
+    private static Doctor doctorOf(long n) {
+        return new Doctor("Perla", "Amalia", 24, "p.amalia" + n + "@hospital.accwe");
+    }
+
+    private static String roomName(long n) {
+        return "Room " + n;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(pair[0], Integer.valueOf(pair[1]));
+        }
+        return weights;
+    }
+
+    private static Map<String, EndpointStats> statsOf(Map<String, Integer> mix) {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String operation : mix.keySet()) {
+            stats.put(operation, new EndpointStats());
+        }
+        return stats;
+    }
+
+    private static String[] wheelOf(Map<String, Integer> mix) {
+        List<String> wheel = new ArrayList<>();
+        mix.forEach((operation, weight) -> wheel.addAll(Collections.nCopies(weight, operation)));
+        Collections.shuffle(wheel, new Random(42));
+        return wheel.toArray(new String[0]);
+    }
+
+    private static Map<String, Object> report(Map<String, EndpointStats> stats, double elapsed, int rate) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("targetRate", rate);
+        report.put("seconds", Math.round(elapsed * 10) / 10.0);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((operation, endpoint) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", endpoint.count());
+            row.put("throughput", Math.round(endpoint.count() / elapsed * 10) / 10.0);
+            row.put("p50Ms", endpoint.percentileMillis(0.50));
+            row.put("p99Ms", endpoint.percentileMillis(0.99));
+            row.put("p999Ms", endpoint.percentileMillis(0.999));
+            row.put("maxMs", endpoint.percentileMillis(1.0));
+            row.put("statuses", endpoint.statuses());
+            endpoints.put(operation, row);
+        });
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    /**
+     * Ids of the appointments that exist, seeded and created alike. Picking and claiming are
+     * O(1): a claimed id is swapped with the last one and dropped, so two workers never delete
+     * the same appointment. When none are left both return 0, which is a 404.
+     */
+    private static final class LiveIds {
+
+        private final List<Long> ids = new ArrayList<>();
+
+        synchronized void add(long id) {
+            ids.add(id);
+        }
+
+        synchronized long any() {
+            return ids.isEmpty() ? 0L : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized long claim() {
+            if (ids.isEmpty()) {
+                return 0L;
+            }
+            int picked = ThreadLocalRandom.current().nextInt(ids.size());
+            long id = ids.get(picked);
+            ids.set(picked, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+
+    }
+
+    private static final class EndpointStats {
+
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long nanos, int status) {
+            latencies.add(nanos);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long count() {
+            return latencies.size();
+        }
+
+        double percentileMillis(double percentile) {
+            long[] sorted;
+            synchronized (latencies) {
+                sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            }
+            if (sorted.length == 0) {
+                return 0;
+            }
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+            return Math.round(sorted[Math.max(rank, 0)] / 1e4) / 100.0;
+        }
+
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.BookingResult;
+import com.example.demo.dto.RoomSummary;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingOutcome;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.StripedBookingLocks;
+
+class BookingServiceUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    private AppointmentRepository appointmentRepository;
+
+    private BookingService bookingService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        bookingService = new BookingService(appointmentRepository, new AppointmentIndex(appointmentRepository, mock(RoomRepository.class)),
+                mock(AppointmentWriter.class), new StripedBookingLocks(64), "index", "", meterRegistry);
+        executor = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfManyConcurrentBookingsForTheSameSlot() throws Exception {
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> {
+            // Widen the window between the conflict check and the insert
+            Thread.sleep(5);
+            return invocation.getArgument(0);
+        });
+
+        List<BookingOutcome> outcomes = runTogether(16, i -> appointment(i, "Dermatology"));
+
+        assertThat(outcomes).filteredOn(o -> o == BookingOutcome.ACCEPTED).hasSize(1);
+        assertThat(outcomes).filteredOn(o -> o == BookingOutcome.ROOM_TAKEN).hasSize(15);
+    }
+
+    @Test
+    void shouldBookDifferentRoomsInParallel() throws Exception {
+        String[] rooms = {"Dermatology", "Oncology", "Emergency", "Radiology"};
+        // Every save waits until all four rooms are saving at once; a shared lock would time out here
+        CyclicBarrier allRoomsSaving = new CyclicBarrier(rooms.length);
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> {
+            allRoomsSaving.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+
+        List<BookingOutcome> outcomes = runTogether(rooms.length, i -> appointment(i, rooms[i]));
+
+        assertThat(outcomes).containsOnly(BookingOutcome.ACCEPTED);
+    }
+
+    @Test
+    void shouldRejectADoctorOrPatientBookedIntoTwoRoomsAtOnce() {
+        Appointment first = appointment(0, "Dermatology");
+        first.getDoctor().setId(7);
+        first.getPatient().setId(11);
+        assertThat(bookingService.book(first)).isEqualTo(BookingOutcome.ACCEPTED);
+
+        Appointment sameDoctor = appointment(1, "Oncology");
+        sameDoctor.getDoctor().setId(7);
+        sameDoctor.getPatient().setId(12);
+        assertThat(bookingService.book(sameDoctor)).isEqualTo(BookingOutcome.DOCTOR_BUSY);
+
+        Appointment samePatient = appointment(2, "Oncology");
+        samePatient.getDoctor().setId(8);
+        samePatient.getPatient().setId(11);
+        assertThat(bookingService.book(samePatient)).isEqualTo(BookingOutcome.PATIENT_BUSY);
+
+        Appointment other = appointment(3, "Oncology");
+        other.getDoctor().setId(8);
+        other.getPatient().setId(12);
+        assertThat(bookingService.bookAll(Arrays.asList(other, samePatient)))
+                .extracting("outcome").containsExactly(BookingOutcome.ACCEPTED, BookingOutcome.PATIENT_BUSY);
+    }
+
+    @Test
+    void shouldCountOutcomesAndTimeTheConflictCheckApartFromTheSave() {
+        assertThat(bookingService.book(appointment(0, "Dermatology"))).isEqualTo(BookingOutcome.ACCEPTED);
+        assertThat(bookingService.book(appointment(1, "Dermatology"))).isEqualTo(BookingOutcome.ROOM_TAKEN);
+        assertThat(bookingService.book(new Appointment(null, null, null, NINE, NINE))).isEqualTo(BookingOutcome.BAD_TIME);
+
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "ACCEPTED").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "ROOM_TAKEN").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "BAD_TIME").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(BookingService.CONFLICT_CHECK).tag("source", "index").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(BookingService.SAVE).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportTheUniqueRoomStartGuardOnEveryAcceptedItemOfABatch() {
+        when(appointmentRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, Appointment.UNIQUE_ROOM_START)));
+
+        List<BookingResult> results = bookingService.bookAll(Arrays.asList(
+                appointment(0, "Dermatology"), new Appointment(null, null, null, NINE, NINE), appointment(2, "Oncology")));
+
+        assertThat(results).extracting("outcome").containsExactly(
+                BookingOutcome.ROOM_TAKEN, BookingOutcome.BAD_TIME, BookingOutcome.ROOM_TAKEN);
+        assertThat(results).extracting("id").containsOnlyNulls();
+        assertThat(bookingService.book(appointment(3, "Dermatology"))).isEqualTo(BookingOutcome.ACCEPTED);
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "ROOM_TAKEN").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAssignDistinctFreeRoomsToConcurrentRequestsInPreferenceOrder() throws Exception {
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        when(roomRepository.findAllSummaries()).thenReturn(Arrays.asList(
+                new RoomSummary("Dermatology"), new RoomSummary("Emergency"), new RoomSummary("Oncology")));
+        AppointmentIndex index = new AppointmentIndex(appointmentRepository, roomRepository);
+        index.reload();
+        AppointmentWriter writer = mock(AppointmentWriter.class);
+        when(writer.insertByReference(any(AppointmentRequest.class))).thenAnswer(invocation -> {
+            AppointmentRequest request = invocation.getArgument(0);
+            Thread.sleep(5);
+            Appointment appointment = new Appointment(null, null, new Room(request.getRoomName()),
+                    request.getStartsAt(), request.getFinishesAt());
+            appointment.setId(request.getPatientId());
+            return appointment;
+        });
+        BookingService service = new BookingService(appointmentRepository, index, writer,
+                new StripedBookingLocks(64), "index", "Oncology", new SimpleMeterRegistry());
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<AppointmentRequest> requests = new ArrayList<>();
+        List<Future<BookingResult>> futures = new ArrayList<>();
+        for (long i = 1; i <= 4; i++) {
+            AppointmentRequest request = new AppointmentRequest(i, 10 + i, null, NINE, NINE.plusHours(1));
+            requests.add(request);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.bookByReference(request);
+            }));
+        }
+        start.countDown();
+        List<BookingResult> results = new ArrayList<>();
+        for (Future<BookingResult> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+
+        assertThat(results).filteredOn(r -> r.getOutcome() == BookingOutcome.ACCEPTED)
+                .extracting("roomName").containsExactlyInAnyOrder("Dermatology", "Emergency", "Oncology");
+        assertThat(results).filteredOn(r -> r.getOutcome() == BookingOutcome.NO_ROOM_AVAILABLE)
+                .extracting("roomName").containsExactly((Object) null);
+        assertThat(requests).extracting("roomName").containsOnlyNulls();
+        assertThat(service.roomCandidates(NINE.plusHours(1), NINE.plusHours(2)))
+                .containsExactly("Oncology", "Dermatology", "Emergency");
+    }
+
+    @Test
+    void shouldNotDeadlockOnOverlappingRoomSets() throws Exception {
+        StripedBookingLocks locks = new StripedBookingLocks(4);
+        List<String> forward = Arrays.asList("Dermatology", "Oncology", "Emergency", "Radiology", "Cardiology");
+        List<String> backward = new ArrayList<>(forward);
+        Collections.reverse(backward);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            List<String> keys = i % 2 == 0 ? forward : backward;
+            results.add(executor.submit(() -> {
+                int done = 0;
+                for (int j = 0; j < 500; j++) {
+                    done += locks.withLocks(keys, () -> 1);
+                }
+                return done;
+            }));
+        }
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(500);
+        }
+    }
+
+    private List<BookingOutcome> runTogether(int bookings, IntFunction<Appointment> appointmentOf)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookingOutcome>> futures = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            Appointment appointment = appointmentOf.apply(i);
+            Callable<BookingOutcome> booking = () -> {
+                start.await();
+                return bookingService.book(appointment);
+            };
+            futures.add(executor.submit(booking));
+        }
+        start.countDown();
+
+        List<BookingOutcome> outcomes = new ArrayList<>();
+        for (Future<BookingOutcome> future : futures) {
+            outcomes.add(future.get(10, TimeUnit.SECONDS));
+        }
+        return outcomes;
+    }
+
+    private Appointment appointment(long id, String roomName) {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Appointment appointment = new Appointment(patient, doctor, new Room(roomName), NINE, NINE.plusHours(1));
+        appointment.setId(id + 1);
+        return appointment;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.services.BookingLocks;
+import com.example.demo.services.DatabaseBookingLocks;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+class DatabaseBookingLocksJpaUnitTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DatabaseBookingLocks locks;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup(){
+        meterRegistry = new SimpleMeterRegistry();
+        locks = new DatabaseBookingLocks(dataSource, 4, 10, 8, 200, meterRegistry);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    void should_make_a_second_holder_of_the_same_room_wait() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> first = executor.submit(() -> locks.withLock(BookingLocks.roomKey("Dermatology"), () -> {
+            holding.countDown();
+            return await(release);
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CountDownLatch entered = new CountDownLatch(1);
+        Future<Boolean> second = executor.submit(() -> locks.withLock(BookingLocks.roomKey("Dermatology"), () -> {
+            entered.countDown();
+            return true;
+        }));
+
+        assertThat(entered.await(300, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        Timer lockWait = meterRegistry.get(DatabaseBookingLocks.LOCK_WAIT).timer();
+        assertThat(lockWait.count()).isEqualTo(2);
+        assertThat(lockWait.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    void should_let_other_rooms_through_while_a_room_is_held() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> first = executor.submit(() -> locks.withLock(BookingLocks.roomKey("Oncology"), () -> {
+            holding.countDown();
+            return await(release);
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<Boolean> other = executor.submit(() ->
+                locks.withLocks(Arrays.asList(BookingLocks.roomKey("Radiology"), BookingLocks.roomKey("Emergency")),
+                        () -> true));
+
+        assertThat(other.get(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void should_share_a_fixed_number_of_rows_between_doctors_and_patients(){
+        for (long id = 1; id <= 100; id++) {
+            locks.withLocks(Arrays.asList(BookingLocks.doctorKey(id), BookingLocks.patientKey(id)), () -> true);
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from booking_locks where lock_key like 'doctor:%' or lock_key like 'patient:%'",
+                Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from booking_locks where lock_key like 'stripe:%'", Long.class)).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void should_refuse_more_holders_than_half_the_pool(){
+        assertThatThrownBy(() -> new DatabaseBookingLocks(dataSource, 6, 10, 8, 200, meterRegistry))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("max-holders");
+    }
+
+    @Test
+    void should_keep_the_result_of_the_action_when_releasing_fails(){
+        DataSource failingRollback = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = invoke(method, dataSource, args);
+                    if (!"getConnection".equals(method.getName())) {
+                        return result;
+                    }
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (connection, call, callArgs) -> {
+                                if ("rollback".equals(call.getName())) {
+                                    throw new SQLException("Connection reset");
+                                }
+                                return invoke(call, result, callArgs);
+                            });
+                });
+
+        assertThat(new DatabaseBookingLocks(failingRollback, 1, 10, 8, 200, meterRegistry)
+                .withLock(BookingLocks.roomKey("Cardiology"), () -> true))
+                .isTrue();
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -1,13 +1,114 @@
 package com.example.demo;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
 
-@SpringBootTest
+import com.example.demo.controllers.ServerTimingFilter;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.RoomRepository;
+
+@SpringBootTest(properties = {"management.endpoints.web.exposure.include=health,prometheus",
+		"server-timing.enabled=true"})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
 class DemoApplicationTests {
 
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	RoomRepository roomRepository;
+
+	@Autowired
+	DoctorRepository doctorRepository;
+
+	@Autowired
+	ServerTimingFilter serverTimingFilter;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void shouldBreakDownRequestLatencyInTheServerTimingHeader() throws Exception {
+		roomRepository.save(new Room("Dermatology"));
+		try {
+			mockMvc.perform(get("/api/rooms"))
+					.andExpect(status().isOk())
+					.andExpect(header().string(ServerTimingFilter.HEADER, Matchers.matchesPattern(
+							"db;dur=\\d+\\.\\d;desc=\"1 statements\", repo;dur=\\d+\\.\\d, json;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d")));
+		} finally {
+			roomRepository.deleteAll();
+		}
+	}
+
+	@Test
+	void shouldHoldBackJsonBodiesUntilTheServerTimingHeaderIsSet() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		serverTimingFilter.doFilter(new MockHttpServletRequest("GET", "/api/rooms"), response, (req, res) -> {
+			res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			res.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+			assertThat(response.getContentAsString()).isEmpty();
+		});
+		assertThat(response.getContentAsString()).isEqualTo("[]");
+		assertThat(response.getHeader(ServerTimingFilter.HEADER)).startsWith("total;dur=");
+	}
+
+	@Test
+	void shouldPassNdjsonBodiesStraightThroughTheServerTimingFilter() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		serverTimingFilter.doFilter(new MockHttpServletRequest("GET", "/api/appointments/export"), response,
+				(req, res) -> {
+					res.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+					res.getOutputStream().write("{}\n".getBytes(StandardCharsets.UTF_8));
+					assertThat(response.getContentAsString()).isEqualTo("{}\n");
+				});
+		assertThat(response.getContentAsString()).isEqualTo("{}\n");
+	}
+
+	@Test
+	void shouldRollBackTheWholeImportWhenTheJsonBodyIsTruncated() throws Exception {
+		long doctorsBefore = doctorRepository.count();
+		String truncated = "[{\"firstName\":\"Perla\",\"lastName\":\"Amalia\",\"age\":24,\"email\":\"p.amalia@hospital.accwe\"},"
+				+ "{\"firstName\":\"Miren\",\"lastName\":\"Iniesta\",\"age\":24,\"email\":\"m.iniesta@hospital.accwe\"},"
+				+ "{\"firstName\":\"Juan";
+
+		mockMvc.perform(post("/api/doctors/import").contentType(MediaType.APPLICATION_JSON).content(truncated))
+				.andExpect(status().isBadRequest());
+
+		assertThat(doctorRepository.count()).isEqualTo(doctorsBefore);
+	}
+
+	@Test
+	void shouldExposeBookingRepositoryAndPoolMetricsToPrometheus() throws Exception {
+		mockMvc.perform(get("/api/appointments")).andExpect(status().isNoContent());
+
+		mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(Matchers.allOf(
+						Matchers.containsString("http_server_requests_seconds_count{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"204\",uri=\"/api/appointments\",}"),
+						Matchers.containsString("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"findAll\",repository=\"AppointmentRepository\""),
+						Matchers.containsString("hikaricp_connections_active"),
+						Matchers.containsString("appointments_bookings_total{outcome=\"ACCEPTED\",}"),
+						Matchers.containsString("appointments_booking_conflict_check_seconds_count{source=\"index\",}"))));
+	}
+
 }
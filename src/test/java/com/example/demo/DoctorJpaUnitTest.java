@@ -3,16 +3,29 @@ package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 
 import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Doctor;
+import com.example.demo.services.PersonImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @DataJpaTest
@@ -102,5 +115,74 @@ class DoctorJpaUnitTest {
         repository.deleteAll();
         assertThat(repository.findAll()).isEmpty();
     }
-    
+
+    @Test
+    void should_page_doctors_by_id(){
+        Doctor doc1 = new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe");
+        Doctor doc2 = new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe");
+        Doctor doc3 = new Doctor("Clarisa","Julia", 29, "c.julia@hospital.accwe");
+
+        entityManager.persist(doc1);
+        entityManager.persist(doc2);
+        entityManager.persist(doc3);
+
+        Slice<Doctor> first = repository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 2));
+        assertThat(first.getContent()).containsExactly(doc1, doc2);
+        assertThat(first.hasNext()).isTrue();
+
+        Slice<Doctor> second = repository.findByIdGreaterThanOrderByIdAsc(doc2.getId(), PageRequest.of(0, 2));
+        assertThat(second.getContent()).containsExactly(doc3);
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void should_import_doctors_from_json() throws Exception {
+        PersonImporter importer = new PersonImporter(entityManager.getEntityManager(), new ObjectMapper(), 2);
+        String json = "[{\"firstName\":\"Juan\",\"lastName\":\"Carlos\",\"age\":34,\"email\":\"j.carlos@hospital.accwe\"},"
+                + "{\"firstName\":\"Cornelio\",\"age\":59},"
+                + "{\"firstName\":\"Clarisa\",\"lastName\":\"Julia\",\"age\":29,\"email\":\"c.julia@hospital.accwe\"}]";
+
+        ImportReport report = importer.importJson(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), Doctor::new);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting("row").containsExactly(2L);
+        assertThat(repository.findAll()).extracting("lastName").containsExactlyInAnyOrder("Carlos", "Julia");
+    }
+
+    @Test
+    void should_page_doctor_summaries_by_id(){
+        Doctor doc1 = entityManager.persist(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+        Doctor doc2 = entityManager.persist(new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(repository.findAllSummaries()).extracting("lastName").containsExactly("Carlos", "Andrea");
+
+        Slice<PersonSummary> page = repository.findSummariesAfter(doc1.getId(), PageRequest.of(0, 5));
+        assertThat(page.getContent()).hasSize(1).first()
+            .hasFieldOrPropertyWithValue("id", doc2.getId())
+            .hasFieldOrPropertyWithValue("firstName", "Cornelio")
+            .hasFieldOrPropertyWithValue("age", 59)
+            .hasFieldOrPropertyWithValue("email", "c.andrea@hospital.accwe");
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void should_allocate_doctor_ids_from_a_pooled_sequence(){
+        IdentifierGenerator generator = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().entityPersister(Doctor.class).getIdentifierGenerator();
+
+        assertThat(generator).isInstanceOf(SequenceStyleGenerator.class);
+        assertThat(((SequenceStyleGenerator) generator).getOptimizer()).isInstanceOf(PooledLoOptimizer.class);
+        assertThat(((SequenceStyleGenerator) generator).getOptimizer().getIncrementSize()).isEqualTo(50);
+
+        Doctor first = entityManager.persist(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+        Doctor second = entityManager.persist(new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe"));
+
+        assertThat(second.getId()).isEqualTo(first.getId() + 1);
+    }
+
 }
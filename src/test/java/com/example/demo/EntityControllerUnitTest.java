@@ -4,21 +4,33 @@ package com.example.demo;
 import com.example.demo.controllers.DoctorController;
 import com.example.demo.controllers.PatientController;
 import com.example.demo.controllers.RoomController;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.PersonSummary;
 import com.example.demo.entities.Doctor;
 import com.example.demo.entities.Patient;
 import com.example.demo.entities.Room;
 import com.example.demo.repositories.DoctorRepository;
 import com.example.demo.repositories.PatientRepository;
 import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.PersonImporter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +48,9 @@ class DoctorControllerUnitTest {
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private PersonImporter personImporter;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -67,6 +82,62 @@ class DoctorControllerUnitTest {
                 .andExpect(content().json(objectMapper.writeValueAsString(doctors)));
     }
 
+    @Test
+    void testdFindDoctorsPage() throws Exception {
+        Doctor doctor1 = new Doctor("John", "Doe", 35, "john.doe@example.com");
+        Doctor doctor2 = new Doctor("Jane", "Smith", 40, "jane.smith@example.com");
+        doctor1.setId(4);
+        doctor2.setId(7);
+        when(doctorRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(doctor1, doctor2), PageRequest.of(0, 2), true));
+
+        String cursor = mockMvc.perform(get("/api/doctors").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn().getResponse().getHeader("X-Next-Cursor");
+
+        Doctor doctor3 = new Doctor("Ann", "Lee", 51, "ann.lee@example.com");
+        doctor3.setId(9);
+        when(doctorRepository.findByIdGreaterThanOrderByIdAsc(7, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(doctor3), PageRequest.of(0, 2), false));
+
+        mockMvc.perform(get("/api/doctors").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(9)))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        verify(doctorRepository, never()).findAll();
+    }
+
+    @Test
+    void testdGetDoctorSummaries() throws Exception {
+        PersonSummary doctor = new PersonSummary(4, "John", "Doe", 35, "john.doe@example.com");
+        when(doctorRepository.findAllSummaries()).thenReturn(Collections.singletonList(doctor));
+
+        mockMvc.perform(get("/api/doctors").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(4)))
+                .andExpect(jsonPath("$[0].lastName", is("Doe")));
+
+        verify(doctorRepository, never()).findAll();
+    }
+
+    @Test
+    void testdImportDoctors() throws Exception {
+        when(personImporter.importJson(any(), any())).thenReturn(new ImportReport());
+
+        mockMvc.perform(post("/api/doctors/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(0)));
+
+        verify(personImporter, times(1)).importJson(any(), any());
+    }
+
     @Test
     void testdFindDoctorById() throws Exception {
         long doctorId = 1;
@@ -95,7 +166,7 @@ class DoctorControllerUnitTest {
         mockMvc.perform(delete("/api/doctors"))
                 .andExpect(status().isOk());
 
-        verify(doctorRepository, times(1)).deleteAll();
+        verify(doctorRepository, times(1)).deleteAllInBatch();
     }
 }
 
@@ -106,6 +177,9 @@ class PatientControllerUnitTest {
     @MockBean
     private PatientRepository patientRepository;
 
+    @MockBean
+    private PersonImporter personImporter;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -140,6 +214,22 @@ class PatientControllerUnitTest {
         verify(patientRepository, times(1)).findAll();
     }
 
+    @Test
+    void testdImportPatients() throws Exception {
+        ImportReport report = new ImportReport();
+        report.imported();
+        when(personImporter.importCsv(any(), any())).thenReturn(report);
+
+        mockMvc.perform(post("/api/patients/import")
+                        .contentType("text/csv")
+                        .content("John,Doe,35,john.doe@example.com\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.failed", is(0)));
+
+        verify(patientRepository, never()).save(any(Patient.class));
+    }
+
     @Test
     void testdGetPatientById() throws Exception {
         long patientId = 1;
@@ -171,7 +261,7 @@ class PatientControllerUnitTest {
         mockMvc.perform(delete("/api/patients"))
                 .andExpect(status().isOk());
 
-        verify(patientRepository, times(1)).deleteAll();
+        verify(patientRepository, times(1)).deleteAllInBatch();
     }
 }
 
@@ -181,6 +271,9 @@ class RoomControllerUnitTest {
     @MockBean
     private RoomRepository roomRepository;
 
+    @MockBean
+    private AppointmentIndex appointmentIndex;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -203,6 +296,16 @@ class RoomControllerUnitTest {
                 .andExpect(jsonPath("$[1].roomName", is("102")));
     }
 
+    @Test
+    void testdGetRoomsPage() throws Exception {
+        given(roomRepository.findByRoomNameGreaterThanOrderByRoomNameAsc("101", PageRequest.of(0, 10)))
+                .willReturn(new SliceImpl<>(Collections.<Room>emptyList(), PageRequest.of(0, 10), false));
+
+        mockMvc.perform(get("/api/rooms").param("limit", "10")
+                        .param("cursor", Base64.getUrlEncoder().encodeToString("101".getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isNoContent());
+    }
+
     @Test
     void testdCreateRoom() throws Exception {
         Room room = new Room("101");
@@ -232,7 +335,39 @@ class RoomControllerUnitTest {
         mockMvc.perform(delete("/api/rooms"))
                 .andExpect(status().isOk());
 
-        verify(roomRepository, times(1)).deleteAll();
+        verify(roomRepository, times(1)).deleteAllInBatch();
+    }
+
+    @Test
+    void testdGetFreeSlotsOfRoom() throws Exception {
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        when(appointmentIndex.hasRoom("101")).thenReturn(true);
+        when(appointmentIndex.freeSlots("101", LocalDate.of(2023, 4, 24), LocalDate.of(2023, 4, 30)))
+                .thenReturn(Collections.singletonList(new FreeSlot("101", nine, nine.plusHours(1))));
+
+        mockMvc.perform(get("/api/rooms/{roomName}/free-slots", "101")
+                        .param("from", "2023-04-24").param("to", "2023-04-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].roomName", is("101")))
+                .andExpect(jsonPath("$[0].startsAt", is("09:00 24/04/2023")));
+    }
+
+    @Test
+    void testdGetFreeSlotsOfUnknownRoom() throws Exception {
+        mockMvc.perform(get("/api/rooms/{roomName}/free-slots", "404")
+                        .param("from", "2023-04-24").param("to", "2023-04-30"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testdGetFreeSlotsOfAllRoomsRejectsBadRanges() throws Exception {
+        mockMvc.perform(get("/api/rooms/free-slots").param("from", "2023-04-30").param("to", "2023-04-24"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rooms/free-slots").param("from", "2023-01-01").param("to", "2023-12-31"))
+                .andExpect(status().isBadRequest());
+
+        verify(appointmentIndex, never()).freeSlots(any(LocalDate.class), any(LocalDate.class));
     }
 
 }
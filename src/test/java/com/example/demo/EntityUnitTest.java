@@ -2,6 +2,7 @@ package com.example.demo;
 
 import com.example.demo.entities.Appointment;
 import com.example.demo.entities.Doctor;
+import com.example.demo.entities.EpochMinutes;
 import com.example.demo.entities.Patient;
 import com.example.demo.entities.Room;
 import org.junit.jupiter.api.BeforeEach;
@@ -244,4 +245,38 @@ class EntityUnitTest {
                 () -> assertNull(a1.getFinishesAt())
         );
     }
+
+    @Test
+    void testAppointmentPrimitiveOverlapMatchesDateTimeOverlap() {
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        for (int start = -120; start <= 120; start += 15) {
+            for (int length = 15; length <= 120; length += 15) {
+                LocalDateTime otherStartsAt = nine.plusMinutes(start);
+                LocalDateTime otherFinishesAt = otherStartsAt.plusMinutes(length);
+                assertEquals(
+                        Appointment.overlaps(nine, nine.plusHours(1), otherStartsAt, otherFinishesAt),
+                        Appointment.overlaps(EpochMinutes.of(nine), EpochMinutes.of(nine.plusHours(1)),
+                                EpochMinutes.of(otherStartsAt), EpochMinutes.of(otherFinishesAt)),
+                        "other starting at " + start + " for " + length);
+            }
+        }
+    }
+
+    @Test
+    void testAppointmentOverlapComparesRoomsAndEpochMinutes() {
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Appointment first = new Appointment(null, null, new Room("Dermatology"), nine, nine.plusHours(1));
+        Appointment sameRoom = new Appointment(null, null, new Room("Dermatology"), nine.plusMinutes(30), nine.plusMinutes(90));
+        Appointment otherRoom = new Appointment(null, null, new Room("Oncology"), nine, nine.plusHours(1));
+
+        assertAll("Overlaps",
+                () -> assertTrue(first.overlaps(sameRoom)),
+                () -> assertFalse(first.overlaps(otherRoom)),
+                () -> assertEquals(nine, EpochMinutes.toLocalDateTime(first.getStartsAtMinute())),
+                () -> assertEquals(60, first.getFinishesAtMinute() - first.getStartsAtMinute())
+        );
+
+        otherRoom.setRoom(new Room("Dermatology"));
+        assertTrue(first.overlaps(otherRoom));
+    }
 }
@@ -0,0 +1,392 @@
+package com.example.demo;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.EpochMinutes;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+/**
+ * Deterministic synthetic hospital: patients, doctors, rooms and appointments
+ * that never overlap for the same room, doctor or patient. The same seed and
+ * sizes always produce the same rows.
+ * <p>
+ * Appointments are booked on weekdays between {@value #OPENS_AT}:00 and
+ * {@value #CLOSES_AT}:00. Each day every doctor staffs at most one room, a room
+ * stays closed on some days, visits follow each other with occasional idle
+ * slots in between, and a minority of patients account for most visits.
+ * By default every visit lasts one hour and starts on the hour, the only shape
+ * the booking API accepts; a mix of other lengths can be passed as
+ * {@code visitMinutes}, for repository work that does not go through the API.
+ * <p>
+ * {@link #load} writes the rows with plain JDBC batches instead of going
+ * through the persistence context. Identifiers are still drawn from the
+ * entities' own sequences, so rows booked later through JPA never collide
+ * with them. On MySQL, add {@code rewriteBatchedStatements=true} to the JDBC
+ * URL to get multi-row inserts. The in-memory {@code AppointmentIndex} is not
+ * touched; reload it after loading.
+ */
+public class HospitalDataset {
+
+    static final int OPENS_AT = 8;
+
+    static final int CLOSES_AT = 20;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] FIRST_NAMES = {"Jose Luis", "Perla", "Maria", "Antonio", "Lucia", "Manuel",
+            "Carmen", "David", "Laura", "Javier", "Ana", "Francisco", "Marta", "Daniel", "Paula", "Carlos",
+            "Elena", "Miguel", "Sara", "Pablo"};
+
+    private static final String[] LAST_NAMES = {"Olaya", "Amalia", "Garcia", "Martinez", "Lopez", "Sanchez",
+            "Perez", "Gomez", "Martin", "Jimenez", "Ruiz", "Hernandez", "Diaz", "Moreno", "Alvarez", "Romero",
+            "Navarro", "Torres", "Dominguez", "Vazquez"};
+
+    private static final String[] SPECIALTIES = {"Dermatology", "Cardiology", "Neurology", "Pediatrics",
+            "Traumatology", "Ophthalmology", "Oncology", "Gynecology", "Urology", "Psychiatry"};
+
+    /** Visit lengths in minutes, repeated by how often they occur. */
+    static final int[] ONE_HOUR = {60};
+
+    /** Idle slots between two visits in the same room, each as long as the shortest visit. */
+    private static final int[] GAPS = {0, 0, 0, 0, 0, 0, 1, 1, 1, 2};
+
+    private static final double ROOM_CLOSED = 0.15;
+
+    private static final int PATIENT_ATTEMPTS = 8;
+
+    private final long seed;
+    private final int patients;
+    private final int doctors;
+    private final int rooms;
+    private final int appointments;
+    private final LocalDate firstDay;
+    private final int[] visitMinutes;
+    private final int slotMinutes;
+
+    public HospitalDataset(long seed, int patients, int doctors, int rooms, int appointments, LocalDate firstDay) {
+        this(seed, patients, doctors, rooms, appointments, firstDay, ONE_HOUR);
+    }
+
+    /**
+     * @param visitMinutes visit lengths in minutes, each repeated by how often it should occur
+     */
+    public HospitalDataset(long seed, int patients, int doctors, int rooms, int appointments, LocalDate firstDay,
+                           int[] visitMinutes) {
+        if (patients < 1 || doctors < 1 || rooms < 1 || appointments < 0) {
+            throw new IllegalArgumentException("A hospital needs at least one patient, doctor and room");
+        }
+        if (visitMinutes.length == 0 || Arrays.stream(visitMinutes).min().getAsInt() < 1) {
+            throw new IllegalArgumentException("Visits must last at least one minute");
+        }
+        this.visitMinutes = visitMinutes.clone();
+        this.slotMinutes = Arrays.stream(visitMinutes).min().getAsInt();
+        this.seed = seed;
+        this.patients = patients;
+        this.doctors = doctors;
+        this.rooms = rooms;
+        this.appointments = appointments;
+        this.firstDay = firstDay;
+    }
+
+    /**
+     * Receives the generated rows in order: all patients, then all doctors, then
+     * all rooms, then the appointments sorted by start time. Participants are
+     * referred to by their position, counted from 0.
+     */
+    public interface Sink {
+
+        void patient(int index, Patient patient);
+
+        void doctor(int index, Doctor doctor);
+
+        void room(int index, Room room);
+
+        void appointment(int patient, int doctor, int room, LocalDateTime startsAt, LocalDateTime finishesAt);
+
+    }
+
+    public void generate(Sink sink) {
+        Random random = new Random(seed);
+        for (int i = 0; i < patients; i++) {
+            sink.patient(i, new Patient(pick(random, FIRST_NAMES), pick(random, LAST_NAMES),
+                    patientAge(random), "patient" + i + "@email.com"));
+        }
+        for (int i = 0; i < doctors; i++) {
+            sink.doctor(i, new Doctor(pick(random, FIRST_NAMES), pick(random, LAST_NAMES),
+                    28 + random.nextInt(40), "doctor" + i + "@hospital.accwe"));
+        }
+        for (int i = 0; i < rooms; i++) {
+            sink.room(i, new Room(roomName(i)));
+        }
+
+        long[] patientFreeFrom = new long[patients];
+        Arrays.fill(patientFreeFrom, Long.MIN_VALUE);
+        int[] staff = new int[doctors];
+        for (int i = 0; i < doctors; i++) {
+            staff[i] = i;
+        }
+
+        int booked = 0;
+        for (LocalDate day = firstDay; booked < appointments; day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            shuffle(random, staff);
+            List<int[]> visits = visitsOf(random, staff);
+            long midnight = EpochMinutes.of(day.atStartOfDay());
+
+            for (int[] visit : visits) {
+                int room = visit[0];
+                long startsAt = midnight + visit[1];
+                long finishesAt = midnight + visit[2];
+                int patient = freePatient(random, patientFreeFrom, startsAt);
+                if (patient < 0) {
+                    continue;
+                }
+                patientFreeFrom[patient] = finishesAt;
+                sink.appointment(patient, staff[room], room,
+                        EpochMinutes.toLocalDateTime(startsAt), EpochMinutes.toLocalDateTime(finishesAt));
+                if (++booked == appointments) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * One day of visits as {room, start minute, finish minute}, sorted by start and then by room.
+     * Room {@code r} is staffed by {@code staff[r]}, so rooms beyond the number of doctors stay closed.
+     */
+    private List<int[]> visitsOf(Random random, int[] staff) {
+        List<int[]> visits = new ArrayList<>();
+        for (int room = 0; room < Math.min(rooms, staff.length); room++) {
+            if (random.nextDouble() < ROOM_CLOSED) {
+                continue;
+            }
+            int minute = OPENS_AT * 60 + slotMinutes * pick(random, GAPS);
+            while (true) {
+                int finishes = minute + pick(random, visitMinutes);
+                if (finishes > CLOSES_AT * 60) {
+                    break;
+                }
+                visits.add(new int[]{room, minute, finishes});
+                minute = finishes + slotMinutes * pick(random, GAPS);
+            }
+        }
+        visits.sort(Comparator.<int[]>comparingInt(v -> v[1]).thenComparingInt(v -> v[0]));
+        return visits;
+    }
+
+    /**
+     * Picks a patient with no visit still running at {@code startsAt}, favouring
+     * low positions so that some patients come far more often than others.
+     */
+    private int freePatient(Random random, long[] patientFreeFrom, long startsAt) {
+        for (int attempt = 0; attempt < PATIENT_ATTEMPTS; attempt++) {
+            double skewed = random.nextDouble();
+            int patient = (int) (patients * skewed * skewed);
+            if (patientFreeFrom[patient] <= startsAt) {
+                return patient;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Generates the dataset and inserts it in JDBC batches of {@value #BATCH_SIZE} rows.
+     */
+    public Loaded load(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Loader loader = new Loader(jdbc, sessionFactory, (SharedSessionContractImplementor) session,
+                    new Loaded(patients, doctors, rooms));
+            generate(loader);
+            loader.flush();
+            return loader.loaded;
+        }
+    }
+
+    /**
+     * Identifiers and names of the rows written by {@link #load}, by position.
+     */
+    public static class Loaded {
+
+        private final long[] patientIds;
+        private final long[] doctorIds;
+        private final String[] roomNames;
+        private long[] appointmentIds = new long[1024];
+        private int appointments;
+        private LocalDateTime lastFinish;
+
+        Loaded(int patients, int doctors, int rooms) {
+            patientIds = new long[patients];
+            doctorIds = new long[doctors];
+            roomNames = new String[rooms];
+        }
+
+        public long getPatientId(int index) {
+            return patientIds[index];
+        }
+
+        public long getDoctorId(int index) {
+            return doctorIds[index];
+        }
+
+        public String getRoomName(int index) {
+            return roomNames[index];
+        }
+
+        public int getAppointments() {
+            return appointments;
+        }
+
+        public long getAppointmentId(int index) {
+            return appointmentIds[index];
+        }
+
+        public LocalDateTime getLastFinish() {
+            return lastFinish;
+        }
+
+    }
+
+    private static final class Loader implements Sink {
+
+        private static final String INSERT_PATIENT =
+                "insert into patient (id, first_name, last_name, age, email) values (?, ?, ?, ?, ?)";
+        private static final String INSERT_DOCTOR =
+                "insert into doctors (id, first_name, last_name, age, email) values (?, ?, ?, ?, ?)";
+        private static final String INSERT_ROOM = "insert into room (room_name) values (?)";
+        private static final String INSERT_APPOINTMENT = "insert into appointment "
+                + "(id, patient_id, doctor_id, room_id, starts_at, finishes_at) values (?, ?, ?, ?, ?, ?)";
+
+        private final JdbcTemplate jdbc;
+        private final SharedSessionContractImplementor session;
+        private final IdentifierGenerator patientIds;
+        private final IdentifierGenerator doctorIds;
+        private final IdentifierGenerator appointmentIds;
+        private final List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        private final Loaded loaded;
+        private String sql;
+
+        Loader(JdbcTemplate jdbc, SessionFactoryImplementor sessionFactory, SharedSessionContractImplementor session,
+               Loaded loaded) {
+            this.jdbc = jdbc;
+            this.session = session;
+            this.loaded = loaded;
+            this.patientIds = identifierGenerator(sessionFactory, Patient.class);
+            this.doctorIds = identifierGenerator(sessionFactory, Doctor.class);
+            this.appointmentIds = identifierGenerator(sessionFactory, Appointment.class);
+        }
+
+        @Override
+        public void patient(int index, Patient patient) {
+            long id = nextId(patientIds);
+            loaded.patientIds[index] = id;
+            add(INSERT_PATIENT, id, patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getEmail());
+        }
+
+        @Override
+        public void doctor(int index, Doctor doctor) {
+            long id = nextId(doctorIds);
+            loaded.doctorIds[index] = id;
+            add(INSERT_DOCTOR, id, doctor.getFirstName(), doctor.getLastName(), doctor.getAge(), doctor.getEmail());
+        }
+
+        @Override
+        public void room(int index, Room room) {
+            loaded.roomNames[index] = room.getRoomName();
+            add(INSERT_ROOM, room.getRoomName());
+        }
+
+        @Override
+        public void appointment(int patient, int doctor, int room, LocalDateTime startsAt, LocalDateTime finishesAt) {
+            long id = nextId(appointmentIds);
+            if (loaded.appointments == loaded.appointmentIds.length) {
+                loaded.appointmentIds = Arrays.copyOf(loaded.appointmentIds, loaded.appointments * 2);
+            }
+            loaded.appointmentIds[loaded.appointments++] = id;
+            loaded.lastFinish = finishesAt;
+            add(INSERT_APPOINTMENT, id, loaded.patientIds[patient], loaded.doctorIds[doctor], loaded.roomNames[room],
+                    Timestamp.valueOf(startsAt), Timestamp.valueOf(finishesAt));
+        }
+
+        private void add(String statement, Object... row) {
+            if (!statement.equals(sql)) {
+                flush();
+                sql = statement;
+            }
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+
+        private long nextId(IdentifierGenerator generator) {
+            return ((Number) generator.generate(session, null)).longValue();
+        }
+
+        private static IdentifierGenerator identifierGenerator(SessionFactoryImplementor sessionFactory, Class<?> entity) {
+            return sessionFactory.getMetamodel().entityPersister(entity).getIdentifierGenerator();
+        }
+
+    }
+
+    static String roomName(int index) {
+        return SPECIALTIES[index % SPECIALTIES.length] + " " + (index / SPECIALTIES.length + 1);
+    }
+
+    /**
+     * Ages 0 to 95, the sum of two uniform draws so that middle ages are the most common.
+     */
+    private static int patientAge(Random random) {
+        return random.nextInt(48) + random.nextInt(48);
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static int pick(Random random, int[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void shuffle(Random random, int[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+}
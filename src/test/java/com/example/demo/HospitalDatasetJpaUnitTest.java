@@ -0,0 +1,137 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+class HospitalDatasetJpaUnitTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2023, 1, 2);
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Test
+    void should_generate_the_same_rows_from_the_same_seed(){
+        HospitalDataset dataset = new HospitalDataset(7, 200, 10, 5, 1000, MONDAY);
+
+        List<String> first = rowsOf(dataset);
+        List<String> second = rowsOf(dataset);
+        List<String> other = rowsOf(new HospitalDataset(8, 200, 10, 5, 1000, MONDAY));
+
+        assertThat(first).hasSize(200 + 10 + 5 + 1000).isEqualTo(second).isNotEqualTo(other);
+    }
+
+    @Test
+    void should_load_appointments_that_never_overlap(){
+        HospitalDataset.Loaded loaded = new HospitalDataset(42, 300, 12, 10, 3000, MONDAY)
+                .load(dataSource, entityManagerFactory);
+
+        List<AppointmentSlot> slots = appointmentRepository.findAllSlots();
+        assertThat(loaded.getAppointments()).isEqualTo(3000);
+        assertThat(slots).hasSize(3000);
+        assertThat(slots).allSatisfy(slot -> {
+            assertThat(slot.getStartsAt().getDayOfWeek()).isNotIn(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+            assertThat(slot.getStartsAt().getHour()).isGreaterThanOrEqualTo(HospitalDataset.OPENS_AT);
+            assertThat(slot.getStartsAt().getMinute()).isZero();
+            assertThat(slot.getFinishesAt()).isEqualTo(slot.getStartsAt().plusHours(1));
+            assertThat(slot.getFinishesAt()).isBeforeOrEqualTo(
+                    slot.getStartsAt().toLocalDate().atTime(HospitalDataset.CLOSES_AT, 0));
+        });
+        assertThat(overlaps(slots, AppointmentSlot::getRoomName)).isZero();
+        assertThat(overlaps(slots, AppointmentSlot::getDoctorId)).isZero();
+        assertThat(overlaps(slots, AppointmentSlot::getPatientId)).isZero();
+    }
+
+    @Test
+    void should_leave_the_sequences_ahead_of_the_loaded_ids(){
+        HospitalDataset.Loaded loaded = new HospitalDataset(42, 10, 3, 2, 50, MONDAY)
+                .load(dataSource, entityManagerFactory);
+
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(doctor.getId()).isNotEqualTo(loaded.getDoctorId(i));
+        }
+        assertThat(doctorRepository.count()).isEqualTo(4);
+    }
+
+    private static List<String> rowsOf(HospitalDataset dataset) {
+        List<String> rows = new ArrayList<>();
+        dataset.generate(new HospitalDataset.Sink() {
+            @Override
+            public void patient(int index, Patient patient) {
+                rows.add(index + " " + patient.getFirstName() + " " + patient.getLastName() + " " + patient.getAge());
+            }
+
+            @Override
+            public void doctor(int index, Doctor doctor) {
+                rows.add(index + " " + doctor.getFirstName() + " " + doctor.getLastName() + " " + doctor.getAge());
+            }
+
+            @Override
+            public void room(int index, Room room) {
+                rows.add(index + " " + room.getRoomName());
+            }
+
+            @Override
+            public void appointment(int patient, int doctor, int room, LocalDateTime startsAt, LocalDateTime finishesAt) {
+                rows.add(patient + " " + doctor + " " + room + " " + startsAt + " " + finishesAt);
+            }
+        });
+        return rows;
+    }
+
+    private static long overlaps(List<AppointmentSlot> slots, Function<AppointmentSlot, Object> key) {
+        Map<Object, List<AppointmentSlot>> schedules = new HashMap<>();
+        for (AppointmentSlot slot : slots) {
+            schedules.computeIfAbsent(key.apply(slot), k -> new ArrayList<>()).add(slot);
+        }
+        long overlaps = 0;
+        for (List<AppointmentSlot> schedule : schedules.values()) {
+            schedule.sort(Comparator.comparing(AppointmentSlot::getStartsAt));
+            for (int i = 1; i < schedule.size(); i++) {
+                if (schedule.get(i).getStartsAt().isBefore(schedule.get(i - 1).getFinishesAt())) {
+                    overlaps++;
+                }
+            }
+        }
+        return overlaps;
+    }
+
+}
@@ -3,16 +3,29 @@ package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 
 import com.example.demo.repositories.PatientRepository;
+import com.example.demo.dto.ImportReport;
 import com.example.demo.entities.Patient;
+import com.example.demo.services.IdSequences;
+import com.example.demo.services.PersonImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @DataJpaTest
@@ -25,6 +38,12 @@ class PatientJpaUnitTest {
     @Autowired
     PatientRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DataSource dataSource;
+
     @Test
     void should_find_no_patients_if_repository_is_empty(){
         Iterable<Patient> patients = repository.findAll();
@@ -102,5 +121,39 @@ class PatientJpaUnitTest {
         repository.deleteAll();
         assertThat(repository.findAll()).isEmpty();
     }
-    
+
+    @Test
+    void should_import_patients_from_csv() throws Exception {
+        PersonImporter importer = new PersonImporter(entityManager.getEntityManager(), new ObjectMapper(), 2);
+        String csv = "firstName,lastName,age,email\n"
+                + "Juan,Carlos,34,j.carlos@hospital.accwe\n"
+                + "Cornelio,Andrea,old,c.andrea@hospital.accwe\n"
+                + "Clarisa,Julia,29\n"
+                + "Mariela,Eric,42,m.eric@email.com\n"
+                + "Balduino,Yamile,67,b.yamile@email.com\n";
+
+        ImportReport report = importer.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Patient::new);
+
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting("row").containsExactly(3L, 4L);
+        assertThat(repository.findAll()).extracting("firstName").containsExactlyInAnyOrder("Juan", "Mariela", "Balduino");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void should_advance_the_patient_sequence_past_existing_ids(){
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into patient (id, first_name, last_name, age, email) values (?, ?, ?, ?, ?)",
+                10_000L, "Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        try {
+            new IdSequences(entityManagerFactory, dataSource).advancePastExistingIds();
+
+            assertThat(jdbcTemplate.queryForObject("call next value for patient_seq", Long.class))
+                    .isGreaterThan(10_000L);
+        } finally {
+            jdbcTemplate.update("delete from patient where id = ?", 10_000L);
+        }
+    }
 }
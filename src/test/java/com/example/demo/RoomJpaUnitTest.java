@@ -2,7 +2,15 @@ package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.lang.management.ManagementFactory;
 import java.util.Optional;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -10,6 +18,8 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.demo.repositories.RoomRepository;
 import com.example.demo.entities.Room;
@@ -25,6 +35,9 @@ class RoomJpaUnitTest {
     @Autowired
     RoomRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Test
     void should_find_no_rooms_if_repository_is_empty(){
         Iterable<Room> rooms = repository.findAll();
@@ -99,5 +112,36 @@ class RoomJpaUnitTest {
         repository.deleteAll();
         assertThat(repository.findAll()).isEmpty();
     }
-    
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void should_serve_rooms_from_the_second_level_cache_until_they_are_deleted() throws Exception {
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        repository.save(new Room("Cardiology"));
+        repository.save(new Room("Radiology"));
+        long hits = cacheHits("rooms-by-name");
+
+        assertThat(repository.findByRoomName("Cardiology")).isPresent();
+        assertThat(repository.findByRoomName("Cardiology")).isPresent();
+
+        assertThat(cache.contains(Room.class, "Cardiology")).isTrue();
+        assertThat(cacheHits("rooms-by-name")).isGreaterThan(hits);
+
+        repository.deleteByRoomName("Cardiology");
+        assertThat(repository.findByRoomName("Cardiology")).isEmpty();
+
+        assertThat(repository.findByRoomName("Radiology")).isPresent();
+        repository.deleteAllInBatch();
+        assertThat(repository.findByRoomName("Radiology")).isEmpty();
+    }
+
+    private long cacheHits(String region) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(
+                new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+        assertThat(names).hasSize(1);
+        return (Long) server.getAttribute(names.iterator().next(), "CacheHits");
+    }
+
 }
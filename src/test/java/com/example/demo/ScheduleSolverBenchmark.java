@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.RoomAssignment;
+import com.example.demo.dto.RoomSummary;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.ScheduleSolver;
+import com.example.demo.services.StripedBookingLocks;
+
+/**
+ * Proposal time of the scheduling solver for a batch spread over 60 days and 100 rooms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScheduleSolverBenchmark {
+
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2023, 5, 1, 0, 0);
+
+    @Param({"10000", "100000"})
+    int requests;
+
+    private ScheduleSolver solver;
+
+    private List<AppointmentRequest> batch;
+
+    @Setup
+    public void setup() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        List<RoomSummary> rooms = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rooms.add(new RoomSummary(String.format("Room %03d", i)));
+        }
+        when(roomRepository.findAllSummaries()).thenReturn(rooms);
+        when(appointmentRepository.findAllSlots()).thenReturn(Collections.emptyList());
+        AppointmentIndex index = new AppointmentIndex(appointmentRepository, roomRepository);
+        index.reload();
+
+        AppointmentWriter writer = mock(AppointmentWriter.class);
+        StripedBookingLocks locks = new StripedBookingLocks(64);
+        solver = new ScheduleSolver(index, writer, locks,
+                new BookingService(appointmentRepository, index, writer, locks, "index", "", new SimpleMeterRegistry()));
+
+        Random random = new Random(42);
+        batch = new ArrayList<>(requests);
+        for (long i = 0; i < requests; i++) {
+            LocalDateTime startsAt = FIRST_DAY.plusDays(random.nextInt(60))
+                    .plusHours(8 + random.nextInt(12)).plusMinutes(30L * random.nextInt(2));
+            batch.add(new AppointmentRequest(i + 1, 1 + random.nextInt(500) + 0L, null,
+                    startsAt, startsAt.plusHours(1)));
+        }
+    }
+
+    @Benchmark
+    public List<RoomAssignment> propose() {
+        return solver.propose(batch);
+    }
+
+}
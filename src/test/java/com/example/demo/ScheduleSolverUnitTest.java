@@ -0,0 +1,196 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AppointmentSlot;
+import com.example.demo.dto.RoomAssignment;
+import com.example.demo.dto.RoomSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AppointmentWriter;
+import com.example.demo.services.BookingLocks;
+import com.example.demo.services.BookingOutcome;
+import com.example.demo.services.BookingService;
+import com.example.demo.services.ScheduleSolver;
+import com.example.demo.services.StripedBookingLocks;
+
+class ScheduleSolverUnitTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    private AppointmentRepository appointmentRepository;
+
+    private AppointmentIndex index;
+
+    private AppointmentWriter writer;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ScheduleSolver solver;
+
+    @BeforeEach
+    void setup() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        when(roomRepository.findAllSummaries()).thenReturn(Arrays.asList(
+                new RoomSummary("Dermatology"), new RoomSummary("Emergency"), new RoomSummary("Oncology")));
+        when(appointmentRepository.findAllSlots()).thenReturn(Collections.singletonList(
+                new AppointmentSlot(1, "Oncology", NINE, NINE.plusHours(1), 7L, 70L)));
+        index = new AppointmentIndex(appointmentRepository, roomRepository);
+        index.reload();
+
+        writer = mock(AppointmentWriter.class);
+        StripedBookingLocks locks = new StripedBookingLocks(64);
+        meterRegistry = new SimpleMeterRegistry();
+        BookingService bookingService = new BookingService(appointmentRepository, index, writer, locks,
+                "index", "Oncology", meterRegistry);
+        solver = new ScheduleSolver(index, writer, locks, bookingService);
+    }
+
+    @Test
+    void shouldPackEachDayIntoTheFewestFreeRooms() {
+        List<AppointmentRequest> requests = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            for (int hour = 0; hour < 3; hour++) {
+                LocalDateTime startsAt = NINE.plusDays(day).plusHours(hour);
+                // Two requests per hour; the existing Oncology booking blocks it on the first day at nine only
+                requests.add(request(100 + requests.size(), startsAt));
+                requests.add(request(100 + requests.size(), startsAt));
+            }
+        }
+
+        List<RoomAssignment> assignments = solver.propose(requests);
+
+        assertThat(assignments).extracting("outcome").containsOnly(BookingOutcome.ACCEPTED);
+        assertThat(assignments.subList(0, 2)).extracting("roomName").containsExactly("Dermatology", "Emergency");
+        assertThat(assignments.subList(2, 4)).extracting("roomName").containsExactly("Oncology", "Dermatology");
+        assertThat(assignments.subList(6, 8)).extracting("roomName").containsExactly("Oncology", "Dermatology");
+    }
+
+    @Test
+    void shouldReportConflictsInsideTheBatchAndWithExistingBookings() {
+        List<AppointmentRequest> requests = Arrays.asList(
+                new AppointmentRequest(1L, 7L, null, NINE.plusMinutes(30), NINE.plusMinutes(90)),
+                new AppointmentRequest(2L, 8L, null, NINE.plusHours(2), NINE.plusHours(3)),
+                new AppointmentRequest(2L, 9L, null, NINE.plusMinutes(150), NINE.plusMinutes(210)),
+                new AppointmentRequest(3L, 10L, null, NINE.plusHours(2), NINE.plusHours(2)),
+                new AppointmentRequest(null, 11L, null, NINE, NINE.plusHours(1)));
+
+        assertThat(solver.propose(requests)).extracting("outcome").containsExactly(
+                BookingOutcome.DOCTOR_BUSY, BookingOutcome.ACCEPTED, BookingOutcome.PATIENT_BUSY,
+                BookingOutcome.BAD_TIME, BookingOutcome.MISSING_REFERENCE);
+    }
+
+    @Test
+    void shouldKeepRequestsRunningPastMidnightInTheSameGroup() {
+        LocalDateTime lateNight = NINE.withHour(23).withMinute(30);
+        List<AppointmentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(request(200 + i, lateNight));
+        }
+        for (int i = 0; i < 3; i++) {
+            requests.add(request(300 + i, lateNight.plusMinutes(30)));
+        }
+
+        List<RoomAssignment> assignments = solver.propose(requests);
+
+        assertThat(assignments.subList(0, 3)).extracting("outcome").containsOnly(BookingOutcome.ACCEPTED);
+        assertThat(assignments.subList(3, 6)).extracting("outcome").containsOnly(BookingOutcome.NO_ROOM_AVAILABLE);
+    }
+
+    @Test
+    void shouldLockOnlyTheProposedRoomsAndCheckThemAgainWithTheDatabase() {
+        List<Collection<String>> locked = new ArrayList<>();
+        BookingLocks recordingLocks = new BookingLocks() {
+            @Override
+            public <T> T withLock(String key, Supplier<T> action) {
+                return withLocks(Collections.singleton(key), action);
+            }
+
+            @Override
+            public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+                locked.add(keys);
+                return action.get();
+            }
+        };
+        BookingService bookingService = new BookingService(appointmentRepository, index, writer, recordingLocks,
+                "database", "Oncology", new SimpleMeterRegistry());
+        ScheduleSolver databaseSolver = new ScheduleSolver(index, writer, recordingLocks, bookingService);
+        LocalDateTime ten = NINE.plusHours(1);
+        // Booked by another node after this node's index was loaded
+        when(appointmentRepository.findOverlappingSlots("Dermatology", NINE, ten, ten.plusHours(1)))
+                .thenReturn(Collections.singletonList(new AppointmentSlot(2, "Dermatology", ten, ten.plusHours(1))));
+        when(writer.insertAllByReference(any())).thenAnswer(invocation -> saved(invocation.getArgument(0), 500));
+
+        List<RoomAssignment> assignments = databaseSolver.commit(Arrays.asList(request(1, ten), request(2, ten)));
+
+        assertThat(assignments).extracting("outcome")
+                .containsExactly(BookingOutcome.ACCEPTED, BookingOutcome.ROOM_TAKEN);
+        assertThat(assignments).extracting("id").containsExactly(500L, null);
+        assertThat(locked).hasSize(1);
+        assertThat(locked.get(0)).contains(BookingLocks.roomKey("Oncology"), BookingLocks.roomKey("Dermatology"))
+                .doesNotContain(BookingLocks.roomKey("Emergency"));
+    }
+
+    @Test
+    void shouldInsertOneByOneWhenTheBatchInsertViolatesAConstraint() {
+        when(writer.insertAllByReference(any()))
+                .thenThrow(new DataIntegrityViolationException("fk_appointment_patient"));
+        when(writer.insertByReference(any())).thenAnswer(invocation -> {
+            AppointmentRequest request = invocation.getArgument(0);
+            if (request.getPatientId() == 99L) {
+                throw new DataIntegrityViolationException("fk_appointment_patient");
+            }
+            return saved(Collections.singletonList(request), 600 + request.getPatientId()).get(0);
+        });
+        LocalDateTime ten = NINE.plusHours(1);
+
+        List<RoomAssignment> assignments = solver.commit(
+                Arrays.asList(request(1, ten), request(99, ten), request(3, ten)));
+
+        assertThat(assignments).extracting("outcome").containsExactly(
+                BookingOutcome.ACCEPTED, BookingOutcome.UNKNOWN_REFERENCE, BookingOutcome.ACCEPTED);
+        assertThat(index.isRoomAvailable("Dermatology", ten, ten.plusHours(1))).isTrue();
+        assertThat(index.isRoomAvailable("Oncology", ten, ten.plusHours(1))).isFalse();
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "ACCEPTED").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(BookingService.BOOKINGS).tag("outcome", "UNKNOWN_REFERENCE").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get(BookingService.SAVE).timer().count()).isEqualTo(4);
+    }
+
+    private static List<Appointment> saved(List<AppointmentRequest> requests, long firstId) {
+        List<Appointment> appointments = new ArrayList<>();
+        for (AppointmentRequest request : requests) {
+            Appointment appointment = new Appointment(null, null, new Room(request.getRoomName()),
+                    request.getStartsAt(), request.getFinishesAt());
+            appointment.setId(firstId + appointments.size());
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    private static AppointmentRequest request(long id, LocalDateTime startsAt) {
+        return new AppointmentRequest(id, id, null, startsAt, startsAt.plusHours(1));
+    }
+
+}